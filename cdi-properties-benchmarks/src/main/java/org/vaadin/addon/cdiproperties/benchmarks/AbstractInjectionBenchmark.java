@@ -0,0 +1,91 @@
+package org.vaadin.addon.cdiproperties.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.enterprise.inject.spi.InjectionPoint;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.vaadin.addon.cdiproperties.ComponentConfigurator;
+import org.vaadin.addon.cdiproperties.annotation.HorizontalLayoutProperties;
+import org.vaadin.addon.cdiproperties.annotation.LabelProperties;
+import org.vaadin.addon.cdiproperties.annotation.TextFieldProperties;
+import org.vaadin.addon.cdiproperties.annotation.VerticalLayoutProperties;
+import org.vaadin.addon.cdiproperties.applier.HorizontalLayoutPropertiesApplier;
+import org.vaadin.addon.cdiproperties.applier.LabelPropertiesApplier;
+import org.vaadin.addon.cdiproperties.applier.TextFieldPropertiesApplier;
+import org.vaadin.addon.cdiproperties.applier.VerticalLayoutPropertiesApplier;
+
+import com.vaadin.ui.HorizontalLayout;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.TextField;
+import com.vaadin.ui.VerticalLayout;
+
+/**
+ * Creates components the way the generated producers do. The subclasses
+ * choose the number of threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public abstract class AbstractInjectionBenchmark {
+
+    private BenchmarkContainer container;
+    private ComponentConfigurator configurator;
+
+    private InjectionPoint textField;
+    private InjectionPoint label;
+    private InjectionPoint verticalLayout;
+    private InjectionPoint horizontalLayout;
+
+    @Setup
+    public void setUp() {
+        container = BenchmarkContainer.start();
+        configurator = container.get(ComponentConfigurator.class);
+        textField = BenchmarkInjectionPoint.of("textField");
+        label = BenchmarkInjectionPoint.of("label");
+        verticalLayout = BenchmarkInjectionPoint.of("verticalLayout");
+        horizontalLayout = BenchmarkInjectionPoint.of("horizontalLayout");
+    }
+
+    @TearDown
+    public void tearDown() {
+        container.shutdown();
+    }
+
+    @Benchmark
+    public TextField textField() throws Exception {
+        return configurator.getComponent(TextFieldProperties.class,
+                textField, TextFieldPropertiesApplier.INSTANCE);
+    }
+
+    @Benchmark
+    public Label label() throws Exception {
+        return configurator.getComponent(LabelProperties.class, label,
+                LabelPropertiesApplier.INSTANCE);
+    }
+
+    @Benchmark
+    public VerticalLayout verticalLayout() throws Exception {
+        return configurator.getComponent(VerticalLayoutProperties.class,
+                verticalLayout, VerticalLayoutPropertiesApplier.INSTANCE);
+    }
+
+    @Benchmark
+    public HorizontalLayout horizontalLayout() throws Exception {
+        return configurator.getComponent(HorizontalLayoutProperties.class,
+                horizontalLayout, HorizontalLayoutPropertiesApplier.INSTANCE);
+    }
+}
@@ -0,0 +1,25 @@
+package org.vaadin.addon.cdiproperties.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs {@link InjectionBenchmark} with the GC profiler. The
+ * gc.alloc.rate.norm figures are the bytes allocated per injected
+ * component. Same as {@code java -jar benchmarks.jar InjectionBenchmark
+ * -prof gc}.
+ */
+public class AllocationProfile {
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(InjectionBenchmark.class.getName())
+                .addProfiler(GCProfiler.class).mode(Mode.AverageTime)
+                .timeUnit(TimeUnit.NANOSECONDS).build()).run();
+    }
+}
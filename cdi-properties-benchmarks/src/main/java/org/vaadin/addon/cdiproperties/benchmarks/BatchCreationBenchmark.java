@@ -0,0 +1,82 @@
+package org.vaadin.addon.cdiproperties.benchmarks;
+
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.enterprise.inject.spi.InjectionPoint;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.vaadin.addon.cdiproperties.ComponentConfigurator;
+import org.vaadin.addon.cdiproperties.annotation.TextFieldProperties;
+import org.vaadin.addon.cdiproperties.applier.TextFieldPropertiesApplier;
+
+import com.vaadin.ui.TextField;
+
+/**
+ * Creates the given number of identically annotated text fields with a
+ * caption and a description key, one by one as the producers do, and as a
+ * single batch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchCreationBenchmark {
+
+    @Param({ "10", "100", "1000" })
+    public int components;
+
+    private BenchmarkContainer container;
+    private ComponentConfigurator configurator;
+    private InjectionPoint textField;
+    private TextFieldProperties properties;
+
+    @Setup
+    public void setUp() {
+        container = BenchmarkContainer.start();
+        configurator = container.get(ComponentConfigurator.class);
+        textField = BenchmarkInjectionPoint.of("unlocalizedTextField");
+        for (Annotation qualifier : textField.getQualifiers()) {
+            if (qualifier instanceof TextFieldProperties) {
+                properties = (TextFieldProperties) qualifier;
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        container.shutdown();
+    }
+
+    @Benchmark
+    public List<TextField> oneByOne() throws Exception {
+        final List<TextField> result = new ArrayList<TextField>(components);
+        for (int i = 0; i < components; i++) {
+            result.add(configurator.<TextField, TextFieldProperties> getComponent(
+                    TextFieldProperties.class, textField,
+                    TextFieldPropertiesApplier.INSTANCE));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<TextField> batch() throws Exception {
+        return configurator.getComponents(properties, components,
+                TextFieldPropertiesApplier.INSTANCE);
+    }
+}
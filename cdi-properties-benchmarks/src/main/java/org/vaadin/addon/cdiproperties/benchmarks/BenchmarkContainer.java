@@ -0,0 +1,53 @@
+package org.vaadin.addon.cdiproperties.benchmarks;
+
+import java.lang.annotation.Annotation;
+
+import javax.enterprise.inject.spi.BeanManager;
+
+import org.jboss.weld.environment.se.Weld;
+import org.jboss.weld.environment.se.WeldContainer;
+import org.vaadin.addon.cdiproperties.ComponentConfigurator;
+import org.vaadin.addon.cdiproperties.producer.ComponentProducers;
+
+/**
+ * Weld SE container with the add-on beans and the benchmark beans. There is
+ * no servlet container nor a VaadinSession, so UI scoped beans are kept in a
+ * {@link BenchmarkUIContext} that is always active.
+ */
+final class BenchmarkContainer {
+
+    private final BenchmarkUIContext uiContext = new BenchmarkUIContext();
+    private final WeldContainer container;
+
+    private BenchmarkContainer() {
+        container = new Weld().disableDiscovery()
+                .addPackage(false, ComponentConfigurator.class)
+                .addPackage(false, ComponentProducers.class)
+                .addBeanClass(BenchmarkTextBundle.class)
+                .addExtension(uiContext.getExtension()).initialize();
+    }
+
+    static BenchmarkContainer start() {
+        return new BenchmarkContainer();
+    }
+
+    <T> T get(Class<T> type, Annotation... qualifiers) {
+        return container.instance().select(type, qualifiers).get();
+    }
+
+    BeanManager getBeanManager() {
+        return container.getBeanManager();
+    }
+
+    /**
+     * Destroys the UI scoped beans, as closing the UI would.
+     */
+    void closeUI() {
+        uiContext.destroy();
+    }
+
+    void shutdown() {
+        closeUI();
+        container.shutdown();
+    }
+}
@@ -0,0 +1,120 @@
+package org.vaadin.addon.cdiproperties.benchmarks;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.Set;
+
+import javax.enterprise.inject.spi.Annotated;
+import javax.enterprise.inject.spi.AnnotatedField;
+import javax.enterprise.inject.spi.AnnotatedType;
+import javax.enterprise.inject.spi.Bean;
+import javax.enterprise.inject.spi.InjectionPoint;
+
+/**
+ * Injection point of a field of {@link PropertyFields}, as the container
+ * would pass it to the component producers.
+ */
+final class BenchmarkInjectionPoint implements InjectionPoint {
+
+    private final Field field;
+    private final Set<Annotation> qualifiers;
+
+    private BenchmarkInjectionPoint(Field field, Annotation propertyAnnotation) {
+        this.field = field;
+        qualifiers = Collections.singleton(propertyAnnotation);
+    }
+
+    /**
+     * Returns the injection point of the given field. The field must carry
+     * exactly one annotation, the properties annotation.
+     */
+    static InjectionPoint of(String fieldName) {
+        try {
+            final Field field = PropertyFields.class.getDeclaredField(fieldName);
+            return new BenchmarkInjectionPoint(field,
+                    field.getAnnotations()[0]);
+        } catch (NoSuchFieldException e) {
+            throw new IllegalArgumentException(fieldName, e);
+        }
+    }
+
+    @Override
+    public Type getType() {
+        return field.getGenericType();
+    }
+
+    @Override
+    public Set<Annotation> getQualifiers() {
+        return qualifiers;
+    }
+
+    @Override
+    public Bean<?> getBean() {
+        return null;
+    }
+
+    @Override
+    public Member getMember() {
+        return field;
+    }
+
+    @Override
+    public Annotated getAnnotated() {
+        return new AnnotatedField<PropertyFields>() {
+            @Override
+            public Field getJavaMember() {
+                return field;
+            }
+
+            @Override
+            public boolean isStatic() {
+                return false;
+            }
+
+            @Override
+            public AnnotatedType<PropertyFields> getDeclaringType() {
+                return null;
+            }
+
+            @Override
+            public Type getBaseType() {
+                return field.getGenericType();
+            }
+
+            @Override
+            public Set<Type> getTypeClosure() {
+                return Collections.singleton(getBaseType());
+            }
+
+            @Override
+            public <T extends Annotation> T getAnnotation(
+                    Class<T> annotationType) {
+                return field.getAnnotation(annotationType);
+            }
+
+            @Override
+            public Set<Annotation> getAnnotations() {
+                return qualifiers;
+            }
+
+            @Override
+            public boolean isAnnotationPresent(
+                    Class<? extends Annotation> annotationType) {
+                return field.isAnnotationPresent(annotationType);
+            }
+        };
+    }
+
+    @Override
+    public boolean isDelegate() {
+        return false;
+    }
+
+    @Override
+    public boolean isTransient() {
+        return false;
+    }
+}
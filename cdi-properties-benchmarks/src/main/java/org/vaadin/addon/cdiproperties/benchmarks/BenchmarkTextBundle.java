@@ -0,0 +1,31 @@
+package org.vaadin.addon.cdiproperties.benchmarks;
+
+import java.util.Locale;
+
+import javax.enterprise.context.ApplicationScoped;
+
+import org.vaadin.addon.cdiproperties.TextBundle;
+
+/**
+ * Text bundle that derives the texts from the key and the current locale
+ * without any lookups of its own, so that the benchmarks measure the add-on.
+ */
+@ApplicationScoped
+public class BenchmarkTextBundle implements TextBundle {
+
+    private volatile Locale locale = Locale.ENGLISH;
+
+    @Override
+    public String getText(String key, Object... params) {
+        return locale.getLanguage() + ":" + key;
+    }
+
+    @Override
+    public Locale getLocale() {
+        return locale;
+    }
+
+    public void setLocale(Locale locale) {
+        this.locale = locale;
+    }
+}
@@ -0,0 +1,11 @@
+package org.vaadin.addon.cdiproperties.benchmarks;
+
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Component creation throughput with one thread per available processor,
+ * all sharing the same container, plans and caches.
+ */
+@Threads(Threads.MAX)
+public class ConcurrentInjectionBenchmark extends AbstractInjectionBenchmark {
+}
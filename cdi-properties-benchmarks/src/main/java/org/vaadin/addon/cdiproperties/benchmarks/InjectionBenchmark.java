@@ -0,0 +1,10 @@
+package org.vaadin.addon.cdiproperties.benchmarks;
+
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Component creation throughput of a single thread.
+ */
+@Threads(1)
+public class InjectionBenchmark extends AbstractInjectionBenchmark {
+}
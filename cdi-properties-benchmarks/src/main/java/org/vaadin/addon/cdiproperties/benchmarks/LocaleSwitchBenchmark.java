@@ -0,0 +1,126 @@
+package org.vaadin.addon.cdiproperties.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import javax.enterprise.inject.spi.BeanManager;
+import javax.enterprise.inject.spi.InjectionPoint;
+import javax.enterprise.util.AnnotationLiteral;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.vaadin.addon.cdiproperties.ComponentConfigurator;
+import org.vaadin.addon.cdiproperties.Localizer.TextBundleUpdated;
+import org.vaadin.addon.cdiproperties.annotation.LabelProperties;
+import org.vaadin.addon.cdiproperties.annotation.TextFieldProperties;
+import org.vaadin.addon.cdiproperties.applier.LabelPropertiesApplier;
+import org.vaadin.addon.cdiproperties.applier.TextFieldPropertiesApplier;
+
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.ui.Component;
+import com.vaadin.ui.CssLayout;
+import com.vaadin.ui.UI;
+
+/**
+ * Latency of a locale switch, that is a {@link TextBundleUpdated} event
+ * handled by the Localizer of a UI with the given number of localized
+ * components. Half of the components are text fields with a caption and a
+ * description key, the other half labels with a value and a caption key.
+ * The given percentage of them is attached to the UI, the others are
+ * detached and only marked for updating on attach.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LocaleSwitchBenchmark {
+
+    private static final Locale[] LOCALES = { Locale.ENGLISH, Locale.GERMAN,
+            new Locale("fi") };
+
+    @Param({ "100", "1000", "10000" })
+    public int components;
+
+    @Param({ "100", "10" })
+    public int attachedPercent;
+
+    private BenchmarkContainer container;
+    private BeanManager beanManager;
+    private BenchmarkTextBundle textBundle;
+    // The UI would keep its components reachable, detached ones included
+    private final List<Component> ui = new ArrayList<Component>();
+    private int switches;
+
+    @Setup
+    public void setUp() throws Exception {
+        container = BenchmarkContainer.start();
+        beanManager = container.getBeanManager();
+        textBundle = container.get(BenchmarkTextBundle.class);
+
+        final ComponentConfigurator configurator = container
+                .get(ComponentConfigurator.class);
+        final InjectionPoint textField = BenchmarkInjectionPoint
+                .of("localizedTextField");
+        final InjectionPoint label = BenchmarkInjectionPoint
+                .of("localizedLabel");
+        final CssLayout content = new CssLayout();
+        final UI attachedTo = new BenchmarkUI();
+        attachedTo.setSession(new VaadinSession(null));
+        attachedTo.setContent(content);
+        for (int i = 0; i < components; i++) {
+            final Component component;
+            if (i % 2 == 0) {
+                component = configurator.getComponent(
+                        TextFieldProperties.class, textField,
+                        TextFieldPropertiesApplier.INSTANCE);
+            } else {
+                component = configurator.getComponent(LabelProperties.class,
+                        label, LabelPropertiesApplier.INSTANCE);
+            }
+            ui.add(component);
+            if (i % 100 < attachedPercent) {
+                content.addComponent(component);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        ui.clear();
+        container.shutdown();
+    }
+
+    @Benchmark
+    public void updateCaption() {
+        final Locale locale = LOCALES[switches++ % LOCALES.length];
+        textBundle.setLocale(locale);
+        beanManager.fireEvent(locale, new TextBundleUpdatedLiteral());
+    }
+
+    @SuppressWarnings("serial")
+    private static final class BenchmarkUI extends UI {
+        @Override
+        protected void init(VaadinRequest request) {
+        }
+    }
+
+    @SuppressWarnings("all")
+    private static final class TextBundleUpdatedLiteral extends
+            AnnotationLiteral<TextBundleUpdated> implements TextBundleUpdated {
+    }
+}
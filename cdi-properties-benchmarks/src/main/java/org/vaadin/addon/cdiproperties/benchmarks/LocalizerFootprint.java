@@ -0,0 +1,95 @@
+package org.vaadin.addon.cdiproperties.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.enterprise.inject.spi.InjectionPoint;
+
+import org.vaadin.addon.cdiproperties.ComponentConfigurator;
+import org.vaadin.addon.cdiproperties.Localizer;
+import org.vaadin.addon.cdiproperties.annotation.LabelProperties;
+import org.vaadin.addon.cdiproperties.annotation.TextFieldProperties;
+import org.vaadin.addon.cdiproperties.applier.LabelPropertiesApplier;
+import org.vaadin.addon.cdiproperties.applier.TextFieldPropertiesApplier;
+
+import com.vaadin.ui.Component;
+
+/**
+ * Prints the heap and serialized bytes the Localizer needs per registered
+ * component. A UI of text fields and labels with two localized texts each
+ * is compared with the same UI created with localized = false. The heap
+ * figures come from used memory after full GCs, so run this with a fixed
+ * heap and nothing else in the JVM, e.g. {@code java -Xms1g -Xmx1g -cp
+ * benchmarks.jar
+ * org.vaadin.addon.cdiproperties.benchmarks.LocalizerFootprint}.
+ */
+public class LocalizerFootprint {
+
+    private static final int COMPONENTS = 20000;
+
+    public static void main(String[] args) throws Exception {
+        final long[] unlocalized = measure("unlocalizedTextField",
+                "unlocalizedLabel");
+        final long[] localized = measure("localizedTextField",
+                "localizedLabel");
+        System.out.println(COMPONENTS + " components, 2 localized texts each");
+        System.out.println("heap bytes per component:       "
+                + (localized[0] - unlocalized[0]) / COMPONENTS);
+        System.out.println("serialized bytes per component: "
+                + (localized[1] - unlocalized[1]) / COMPONENTS);
+    }
+
+    /**
+     * Returns the heap used by the UI and its serialized size.
+     */
+    private static long[] measure(String textFieldName, String labelName)
+            throws Exception {
+        final BenchmarkContainer container = BenchmarkContainer.start();
+        try {
+            final ComponentConfigurator configurator = container
+                    .get(ComponentConfigurator.class);
+            final Localizer localizer = container.get(Localizer.class);
+            final InjectionPoint textField = BenchmarkInjectionPoint
+                    .of(textFieldName);
+            final InjectionPoint label = BenchmarkInjectionPoint
+                    .of(labelName);
+
+            final long before = usedMemory();
+            final List<Component> ui = new ArrayList<Component>();
+            for (int i = 0; i < COMPONENTS; i++) {
+                if (i % 2 == 0) {
+                    ui.add(configurator.getComponent(
+                            TextFieldProperties.class, textField,
+                            TextFieldPropertiesApplier.INSTANCE));
+                } else {
+                    ui.add(configurator.getComponent(LabelProperties.class,
+                            label, LabelPropertiesApplier.INSTANCE));
+                }
+            }
+            final long heap = usedMemory() - before;
+
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final ObjectOutputStream out = new ObjectOutputStream(bytes);
+            out.writeObject(ui);
+            out.writeObject(localizer);
+            out.close();
+            return new long[] { heap, bytes.size() };
+        } finally {
+            container.shutdown();
+        }
+    }
+
+    private static long usedMemory() throws InterruptedException {
+        final Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(100);
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+}
@@ -0,0 +1,49 @@
+package org.vaadin.addon.cdiproperties.benchmarks;
+
+import org.vaadin.addon.cdiproperties.annotation.HorizontalLayoutProperties;
+import org.vaadin.addon.cdiproperties.annotation.LabelProperties;
+import org.vaadin.addon.cdiproperties.annotation.TextFieldProperties;
+import org.vaadin.addon.cdiproperties.annotation.VerticalLayoutProperties;
+
+import com.vaadin.shared.ui.ContentMode;
+import com.vaadin.shared.ui.ValueChangeMode;
+import com.vaadin.ui.HorizontalLayout;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.TextField;
+import com.vaadin.ui.VerticalLayout;
+
+/**
+ * Representative property annotations. The fields are never injected, they
+ * only carry the annotations for {@link BenchmarkInjectionPoint}.
+ */
+class PropertyFields {
+
+    @TextFieldProperties(caption = "Name", placeholder = "First and last name", width = "100%", valueChangeMode = ValueChangeMode.LAZY, styleName = "name")
+    TextField textField;
+
+    @LabelProperties(value = "<b>Name</b>", contentMode = ContentMode.HTML, sizeUndefined = true, styleName = {
+            "bold", "small" })
+    Label label;
+
+    @VerticalLayoutProperties(margin = true, sizeFull = true, styleName = "content")
+    VerticalLayout verticalLayout;
+
+    @HorizontalLayoutProperties(margin = { true, false, true, false }, width = "100%", id = "toolbar")
+    HorizontalLayout horizontalLayout;
+
+    // Registered to the Localizer
+
+    @TextFieldProperties(captionKey = "name", descriptionKey = "name.description", localized = true)
+    TextField localizedTextField;
+
+    @LabelProperties(valueKey = "greeting", captionKey = "greeting.caption", localized = true)
+    Label localizedLabel;
+
+    // Same texts without registering to the Localizer
+
+    @TextFieldProperties(captionKey = "name", descriptionKey = "name.description", localized = false)
+    TextField unlocalizedTextField;
+
+    @LabelProperties(valueKey = "greeting", captionKey = "greeting.caption", localized = false)
+    Label unlocalizedLabel;
+}
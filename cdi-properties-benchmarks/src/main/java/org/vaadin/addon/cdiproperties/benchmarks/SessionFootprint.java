@@ -0,0 +1,81 @@
+package org.vaadin.addon.cdiproperties.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.enterprise.inject.spi.InjectionPoint;
+import javax.enterprise.inject.spi.Unmanaged;
+
+import org.vaadin.addon.cdiproperties.ComponentConfigurator;
+import org.vaadin.addon.cdiproperties.annotation.TextFieldProperties;
+import org.vaadin.addon.cdiproperties.applier.TextFieldPropertiesApplier;
+import org.vaadin.addon.cdiproperties.producer.ComponentProducers;
+
+/**
+ * Prints the heap and serialized bytes each session spent on its own
+ * ComponentConfigurator and ComponentProducers while they were session
+ * scoped. The instances are created outside of any scope, one pair per
+ * simulated session, and used for one injection first. Application scoped,
+ * the beans are no longer in the sessions at all, so these are the savings
+ * per session. Run this like {@link LocalizerFootprint}, e.g. {@code java
+ * -Xms1g -Xmx1g -cp benchmarks.jar
+ * org.vaadin.addon.cdiproperties.benchmarks.SessionFootprint}.
+ */
+public class SessionFootprint {
+
+    private static final int SESSIONS = 10000;
+
+    public static void main(String[] args) throws Exception {
+        final BenchmarkContainer container = BenchmarkContainer.start();
+        try {
+            final Unmanaged<ComponentConfigurator> configurators = new Unmanaged<ComponentConfigurator>(
+                    container.getBeanManager(), ComponentConfigurator.class);
+            final Unmanaged<ComponentProducers> producers = new Unmanaged<ComponentProducers>(
+                    container.getBeanManager(), ComponentProducers.class);
+            final InjectionPoint textField = BenchmarkInjectionPoint
+                    .of("unlocalizedTextField");
+
+            final long before = usedMemory();
+            final List<Object> sessions = new ArrayList<Object>();
+            for (int i = 0; i < SESSIONS; i++) {
+                final ComponentConfigurator configurator = configurators
+                        .newInstance().produce().inject().postConstruct()
+                        .get();
+                configurator.getComponent(TextFieldProperties.class,
+                        textField, TextFieldPropertiesApplier.INSTANCE);
+                sessions.add(configurator);
+                sessions.add(producers.newInstance().produce().inject()
+                        .postConstruct().get());
+            }
+            final long heap = usedMemory() - before;
+
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final ObjectOutputStream out = new ObjectOutputStream(bytes);
+            out.writeObject(sessions.get(0));
+            out.writeObject(sessions.get(1));
+            out.close();
+
+            System.out.println(SESSIONS
+                    + " sessions with a ComponentConfigurator and ComponentProducers each");
+            System.out.println("heap bytes per session:       " + heap
+                    / SESSIONS);
+            System.out.println("serialized bytes per session: "
+                    + bytes.size());
+        } finally {
+            container.shutdown();
+        }
+    }
+
+    private static long usedMemory() throws InterruptedException {
+        final Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(100);
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+}
@@ -0,0 +1,96 @@
+package org.vaadin.addon.cdiproperties;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import com.vaadin.ui.Component;
+
+/**
+ * Lists the component classes of a package (and its subpackages) from the
+ * jar or directory that contains the Vaadin component classes.
+ */
+class ComponentScanner {
+
+    static List<Class<?>> findComponentClasses(String packageName)
+            throws IOException {
+        final String path = packageName.replace('.', '/') + "/";
+        final List<String> classNames = new ArrayList<String>();
+
+        final File location = getLocation();
+        if (location.isDirectory()) {
+            collectClassNames(new File(location, path), path, classNames);
+        } else {
+            final JarFile jar = new JarFile(location);
+            try {
+                final Enumeration<JarEntry> entries = jar.entries();
+                while (entries.hasMoreElements()) {
+                    final String name = entries.nextElement().getName();
+                    if (name.startsWith(path)) {
+                        addClassName(name, classNames);
+                    }
+                }
+            } finally {
+                jar.close();
+            }
+        }
+        Collections.sort(classNames);
+
+        final List<Class<?>> result = new ArrayList<Class<?>>();
+        for (String className : classNames) {
+            try {
+                final Class<?> type = Class.forName(className, false,
+                        Component.class.getClassLoader());
+                if (Component.class.isAssignableFrom(type)) {
+                    result.add(type);
+                }
+            } catch (ClassNotFoundException e) {
+                // Ignore
+            } catch (LinkageError e) {
+                // Optional dependencies of the class are missing
+            }
+        }
+        return result;
+    }
+
+    private static File getLocation() throws IOException {
+        final URL location = Component.class.getProtectionDomain()
+                .getCodeSource().getLocation();
+        try {
+            return new File(location.toURI());
+        } catch (URISyntaxException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static void collectClassNames(File directory, String path,
+            List<String> classNames) {
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.isDirectory()) {
+                    collectClassNames(file, path + file.getName() + "/",
+                            classNames);
+                } else {
+                    addClassName(path + file.getName(), classNames);
+                }
+            }
+        }
+    }
+
+    private static void addClassName(String entryName, List<String> classNames) {
+        // Nested classes would clash with the top level names of the
+        // generated annotations
+        if (entryName.endsWith(".class") && !entryName.contains("$")) {
+            classNames.add(entryName.substring(0,
+                    entryName.length() - ".class".length()).replace('/', '.'));
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package org.vaadin.addon.cdiproperties;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an application component for which {@link PropertiesProcessor}
+ * generates a properties annotation, an applier and a producer in the
+ * component's own package.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.CLASS)
+public @interface GenerateProperties {
+}
@@ -5,19 +5,28 @@ import java.beans.IntrospectionException;
 import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.lang.reflect.Method;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-import com.openpojo.reflection.PojoClass;
-import com.openpojo.reflection.impl.PojoClassFactory;
 import com.vaadin.ui.AbstractComponent;
 import com.vaadin.ui.AbstractOrderedLayout;
 import com.vaadin.ui.Component;
@@ -30,6 +39,7 @@ import com.vaadin.ui.components.colorpicker.ColorPickerGrid;
 import com.vaadin.ui.components.colorpicker.ColorPickerHistory;
 import com.vaadin.ui.components.colorpicker.ColorPickerSelect;
 import org.vaadin.addon.cdiproperties.Generator.ComponentModel.ComponentProperty;
+import org.vaadin.addon.cdiproperties.Generator.ComponentModel.IndexedProperty;
 
 class Sets {
     static <T> Set<T> newHashSet(T ... classes) {
@@ -65,76 +75,213 @@ class Generator {
 
 
 
-    public static void main(String[] args) throws IntrospectionException {
+    static final String ANNOTATION_PACKAGE = "org.vaadin.addon.cdiproperties.annotation";
+    static final String PRODUCER_PACKAGE = "org.vaadin.addon.cdiproperties.producer";
+    static final String APPLIER_PACKAGE = "org.vaadin.addon.cdiproperties.applier";
+
+    /**
+     * Command line entry point writing the sources for the Vaadin core
+     * components into the given annotation, producer and applier
+     * directories, and the property index into the optional fourth
+     * resource directory. Builds normally generate them with
+     * {@link PropertiesProcessor} instead.
+     */
+    public static void main(String[] args) throws IntrospectionException,
+            IOException {
+
+        List<ComponentModel> componentModels = createComponentModels(ComponentScanner
+                .findComponentClasses("com.vaadin.ui"));
+
+        for (ComponentModel componentModel : componentModels) {
+            try {
+                writeFile(
+                        args[0]
+                                + "/"
+                                + componentModel.formatAnnotationClassName()
+                                + ".java",
+                        componentModel.toAnnotation());
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
 
-        Set<ComponentModel> componentModels = Sets.newHashSet();
+            try {
+                writeFile(
+                        args[2]
+                                + "/"
+                                + componentModel.formatApplierClassName()
+                                + ".java",
+                        componentModel.toApplier());
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
 
-        for (PojoClass pojoClass : PojoClassFactory
-                .enumerateClassesByExtendingType("com.vaadin.ui",
-                        Component.class, null)) {
-            if ((pojoClass.isConcrete())
-                    && !excludedClasses.contains(pojoClass.getClazz())) {
-                Object implementation = getPojoInstance(pojoClass);
+        try {
+            writeFile(args[1] + "/ComponentProducers.java",
+                    toProducer(PRODUCER_PACKAGE, "ComponentProducers",
+                            componentModels));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
 
-                if (implementation != null) {
-                    ComponentModel componentModel = new ComponentModel(pojoClass.getClazz());
+        if (args.length > 3) {
+            try {
+                File directory = new File(args[3],
+                        PropertyIndexWriter.RESOURCE_PACKAGE.replace('.', '/'));
+                directory.mkdirs();
+                writeFile(new File(directory,
+                        PropertyIndexWriter.RESOURCE_NAME).getPath(),
+                        PropertyIndexWriter.write(componentModels));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+    }
+
+    /**
+     * Creates the models of the given Vaadin core components in parallel. The
+     * models are returned in the order of the given classes; excluded
+     * components are left out.
+     */
+    static List<ComponentModel> createComponentModels(
+            List<Class<?>> componentClasses) throws IntrospectionException {
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime
+                .getRuntime().availableProcessors());
+        try {
+            List<Future<ComponentModel>> futures = new ArrayList<Future<ComponentModel>>();
+            for (final Class<?> componentClass : componentClasses) {
+                futures.add(executor.submit(new Callable<ComponentModel>() {
+                    @Override
+                    public ComponentModel call() throws Exception {
+                        return createComponentModel(componentClass);
+                    }
+                }));
+            }
 
-                    // Add bean properties
-                    BeanInfo bi = Introspector.getBeanInfo(implementation.getClass());
-                    PropertyDescriptor[] propertyDescriptor = bi.getPropertyDescriptors();
+            List<ComponentModel> result = new ArrayList<ComponentModel>();
+            for (Future<ComponentModel> future : futures) {
+                ComponentModel componentModel = future.get();
+                if (componentModel != null) {
+                    result.add(componentModel);
+                }
+            }
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IntrospectionException("Interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IntrospectionException) {
+                throw (IntrospectionException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+    }
 
-                    for (PropertyDescriptor pid : bi.getPropertyDescriptors()) {
-                        boolean setterFound = pid.getWriteMethod() != null;
+    /**
+     * Creates the model of a Vaadin core component, or returns null if the
+     * component is excluded or can not be instantiated.
+     */
+    static ComponentModel createComponentModel(Class<?> componentClass)
+            throws IntrospectionException {
+        if (Modifier.isAbstract(componentClass.getModifiers())
+                || componentClass.isInterface()
+                || excludedClasses.contains(componentClass)) {
+            return null;
+        }
+        Object implementation = getInstance(componentClass);
+        if (implementation == null) {
+            return null;
+        }
 
-                        if (setterFound && !excludedProperties.contains(pid.getName())) {
-                            Class type = pid.getPropertyType();
+        ComponentModel componentModel = new ComponentModel(
+                componentClass.getCanonicalName(),
+                componentClass.getSimpleName(), null);
+        componentModel.binaryName = componentClass.getName();
+        addBeanProperties(componentModel, componentClass, implementation);
+
+        // Add custom properties
+        componentModel.getProperties().addAll(
+                getCustomProperties(implementation,
+                        formatDefaultValue(implementation.getClass())));
+        return componentModel;
+    }
 
-                            if (primitiveWrapperClasses.contains(type)
-                                    || type.isEnum() || type == String.class
-                                    || type == Class.class) {
+    /**
+     * Creates the model of an application component that is not available as
+     * a class yet. Bean properties and defaults are read from its closest
+     * compiled superclass; the properties declared by the component itself
+     * are passed in.
+     */
+    static ComponentModel createComponentModel(String qualifiedName,
+            String simpleName, String packageName, Class<?> compiledSuperclass,
+            Collection<ComponentProperty> declaredProperties)
+            throws IntrospectionException {
+        Object implementation = getInstance(compiledSuperclass);
+        if (implementation == null) {
+            return null;
+        }
 
+        ComponentModel componentModel = new ComponentModel(qualifiedName,
+                simpleName, packageName);
+        addBeanProperties(componentModel, compiledSuperclass, null);
+        componentModel.getProperties().addAll(declaredProperties);
+        componentModel.getProperties().addAll(
+                getCustomProperties(implementation, qualifiedName + ".class"));
+        return componentModel;
+    }
 
-                                String defaultValue = formatDefaultValue(getDefaultValue(pid));
-                                if (type == String.class) {
-                                    defaultValue = "org.vaadin.addon.cdiproperties.ComponentConfigurator.IGNORED_STRING";
-                                }
+    static boolean isExcludedProperty(String name) {
+        return excludedProperties.contains(name);
+    }
 
-                                ComponentProperty cp = new ComponentProperty(
-                                        formatType(type),
-                                        pid.getName(),
-                                        defaultValue);
-                                componentModel.getProperties().add(cp);
-                            }
-                        }
-                    }
+    /**
+     * Adds the annotation members of the bean properties. With a prototype,
+     * every writable property is also indexed, including the ones that are
+     * not annotation members: annotations of the application may have
+     * members for any of them.
+     *
+     * @param prototype
+     *            a fresh instance of exactly the component class, used for
+     *            reading the values the setters can skip, or null
+     */
+    private static void addBeanProperties(ComponentModel componentModel,
+            Class<?> componentClass, Object prototype)
+            throws IntrospectionException {
+        BeanInfo bi = Introspector.getBeanInfo(componentClass);
+
+        for (PropertyDescriptor pid : bi.getPropertyDescriptors()) {
+            boolean setterFound = pid.getWriteMethod() != null;
+
+            if (setterFound && prototype != null) {
+                componentModel.getIndexedProperties().add(
+                        new IndexedProperty(pid, prototype));
+            }
+            if (setterFound && !excludedProperties.contains(pid.getName())) {
+                Class type = pid.getPropertyType();
 
-                    // Add custom properties
-                    componentModel.getProperties().addAll(
-                            getCustomProperties(pojoClass, implementation));
+                if (primitiveWrapperClasses.contains(type)
+                        || type.isEnum() || type == String.class
+                        || type == Class.class) {
 
-                    try {
-                        writeFile(
-                                args[0]
-                                        + "/"
-                                        + componentModel.formatAnnotationClassName()
-                                        + ".java",
-                                componentModel.toAnnotation());
-                    } catch (IOException e) {
-                        e.printStackTrace();
+
+                    String defaultValue = formatDefaultValue(getDefaultValue(pid));
+                    if (type == String.class) {
+                        defaultValue = "org.vaadin.addon.cdiproperties.ComponentConfigurator.IGNORED_STRING";
                     }
 
-                    componentModels.add(componentModel);
+                    ComponentProperty cp = new ComponentProperty(
+                            formatType(type),
+                            pid.getName(),
+                            defaultValue,
+                            pid.getWriteMethod().getName(),
+                            formatComponentDefault(pid, prototype));
+                    componentModel.getProperties().add(cp);
                 }
             }
         }
-
-        try {
-            writeFile(args[1] + "/ComponentProducers.java",
-                    toProducer(componentModels));
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-
     }
 
     private static Object getDefaultValue(PropertyDescriptor pid) {
@@ -147,14 +294,51 @@ class Generator {
                 result = false;
             } else if (Double.class.isAssignableFrom(pid.getPropertyType())) {
                 result = 0.0d;
+            } else if (Integer.class.isAssignableFrom(pid.getPropertyType())) {
+                result = 0;
+            } else if (Float.class.isAssignableFrom(pid.getPropertyType())) {
+                result = 0.0f;
+            } else if (Long.class.isAssignableFrom(pid.getPropertyType())) {
+                result = 0L;
             }
         }
 
         return result;
     }
 
+    /**
+     * Returns the value the prototype has for the property as a literal, or
+     * null if it can not be read or written as one.
+     */
+    private static String formatComponentDefault(PropertyDescriptor pid,
+            Object prototype) {
+        if (prototype == null || pid.getReadMethod() == null) {
+            return null;
+        }
+        Object value;
+        try {
+            value = pid.getReadMethod().invoke(prototype);
+        } catch (Exception e) {
+            return null;
+        }
+        if (value instanceof String) {
+            String string = (String) value;
+            for (int i = 0; i < string.length(); i++) {
+                char c = string.charAt(i);
+                if (c == '"' || c == '\\' || c < ' ') {
+                    return null;
+                }
+            }
+        } else if (!(value instanceof Boolean || value instanceof Integer
+                || value instanceof Float || value instanceof Double
+                || value instanceof Enum || value instanceof Class)) {
+            return null;
+        }
+        return formatDefaultValue(value);
+    }
+
     private static Collection<? extends ComponentProperty> getCustomProperties(
-            PojoClass pojoClass, Object implementation) {
+            Object implementation, String implementationDefault) {
         Collection<ComponentProperty> result = Sets.newHashSet();
 
         Component component = (Component) implementation;
@@ -177,7 +361,7 @@ class Generator {
                 "org.vaadin.addon.cdiproperties.ComponentConfigurator.IGNORED_STRING"));
 
         result.add(new ComponentProperty("Class", "implementation",
-                formatDefaultValue(implementation.getClass())));
+                implementationDefault));
 
         result.add(new ComponentProperty("String", "captionKey",
                 "org.vaadin.addon.cdiproperties.ComponentConfigurator.IGNORED_STRING"));
@@ -217,6 +401,8 @@ class Generator {
             result = "float";
         } else if (type == Double.class) {
             result = "double";
+        } else if (type == Long.class) {
+            result = "long";
         }
 
         return result;
@@ -228,6 +414,8 @@ class Generator {
             result = "\"" + defaultValue + "\"";
         } else if (defaultValue instanceof Float) {
             result = result.concat("f");
+        } else if (defaultValue instanceof Long) {
+            result = result.concat("L");
         } else if (defaultValue != null && defaultValue.getClass().isEnum()) {
             Enum e = (Enum) defaultValue;
             result = e.getClass().getCanonicalName() + "." + e.name();
@@ -237,19 +425,24 @@ class Generator {
         return result;
     }
 
-    private static String toProducer(Set<ComponentModel> componentModels) {
+    static String toProducer(String packageName, String className,
+            Collection<ComponentModel> componentModels) {
         StringBuilder sb = new StringBuilder();
-        sb.append("package org.vaadin.addon.cdiproperties.producer;\n");
+        sb.append("package ").append(packageName).append(";\n");
         sb.append("import javax.enterprise.inject.*;\n");
         sb.append("import javax.inject.*;\n");
         sb.append("import org.vaadin.addon.cdiproperties.ComponentConfigurator;\n");
         sb.append("import javax.enterprise.inject.spi.*;\n");
-        sb.append("import javax.enterprise.context.SessionScoped;\n");
-        sb.append("import org.vaadin.addon.cdiproperties.annotation.*;\n");
-        sb.append("\n\n@SessionScoped\n");
+        sb.append("import javax.enterprise.context.ApplicationScoped;\n");
+        if (PRODUCER_PACKAGE.equals(packageName)) {
+            sb.append("import org.vaadin.addon.cdiproperties.annotation.*;\n");
+            sb.append("import org.vaadin.addon.cdiproperties.applier.*;\n");
+        }
+        sb.append("\n\n@ApplicationScoped\n");
         // sb.append("@Target({ ElementType.METHOD, ElementType.PARAMETER, ElementType.FIELD })\n");
         // sb.append("@Retention(RetentionPolicy.RUNTIME)\n");
-        sb.append("public class ComponentProducers implements java.io.Serializable {\n\n");
+        sb.append("public class ").append(className)
+                .append(" implements java.io.Serializable {\n\n");
         sb.append("@Inject\n");
         sb.append("private ComponentConfigurator cc;\n\n");
 
@@ -257,8 +450,7 @@ class Generator {
         Collections.sort(ordered, new Comparator<ComponentModel>() {
             @Override
             public int compare(ComponentModel o1, ComponentModel o2) {
-                return o1.getComponentClass().getSimpleName()
-                        .compareTo(o2.getComponentClass().getSimpleName());
+                return o1.getSimpleName().compareTo(o2.getSimpleName());
             }
         });
         for (ComponentModel componentModel : ordered) {
@@ -269,44 +461,112 @@ class Generator {
         return sb.toString();
     }
 
-    private static Object getPojoInstance(PojoClass pojoClass) {
+    private static Object getInstance(Class<?> componentClass) {
         Object instance = null;
         try {
-            instance = pojoClass.getClazz().newInstance();
+            instance = componentClass.newInstance();
         } catch (InstantiationException e) {
         } catch (IllegalAccessException e) {
         }
         return instance;
     }
 
+    /**
+     * Writes the file unless it already has the given content, so unchanged
+     * sources keep their timestamps and are not recompiled.
+     */
     public static void writeFile(String filename, String output)
             throws IOException {
+        writeFile(filename, output.getBytes("UTF-8"));
+    }
+
+    static void writeFile(String filename, byte[] content) throws IOException {
         File file = new File(filename);
-        FileWriter writer = new FileWriter(file);
-        writer.write(output);
-        writer.close();
+        if (file.length() == content.length
+                && Arrays.equals(digest(Files.readAllBytes(file.toPath())),
+                        digest(content))) {
+            return;
+        }
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content);
+        } finally {
+            out.close();
+        }
     }
 
-    static class ComponentModel {
-        private final Class componentClass;
-        private final Set<ComponentProperty> properties = Sets.newHashSet();
+    private static byte[] digest(byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 
-        public ComponentModel(Class componentClass) {
+    static class ComponentModel {
+        private final String componentName;
+        private final String simpleName;
+        private final String packageName;
+        private String binaryName;
+        private final List<IndexedProperty> indexedProperties = new ArrayList<IndexedProperty>();
+        // Sorted by name; the first property added with a name wins
+        private final Set<ComponentProperty> properties = new TreeSet<ComponentProperty>(
+                new Comparator<ComponentProperty>() {
+                    @Override
+                    public int compare(ComponentProperty o1,
+                            ComponentProperty o2) {
+                        return o1.name.compareTo(o2.name);
+                    }
+                });
+
+        /**
+         * @param packageName
+         *            the package of the generated sources, or null to use the
+         *            packages of the Vaadin core components
+         */
+        public ComponentModel(String componentName, String simpleName,
+                String packageName) {
             super();
-            this.componentClass = componentClass;
+            this.componentName = componentName;
+            this.simpleName = simpleName;
+            this.packageName = packageName;
         }
 
         public Set<ComponentProperty> getProperties() {
             return properties;
         }
 
-        public Class getComponentClass() {
-            return componentClass;
+        /**
+         * All the writable bean properties, written into the property index;
+         * only known for the Vaadin core components.
+         */
+        public List<IndexedProperty> getIndexedProperties() {
+            return indexedProperties;
+        }
+
+        public String getBinaryName() {
+            return binaryName;
+        }
+
+        public String getComponentName() {
+            return componentName;
+        }
+
+        public String getSimpleName() {
+            return simpleName;
+        }
+
+        public String getAnnotationPackage() {
+            return packageName != null ? packageName : ANNOTATION_PACKAGE;
+        }
+
+        public String getApplierPackage() {
+            return packageName != null ? packageName : APPLIER_PACKAGE;
         }
 
         public String toAnnotation() {
             StringBuilder sb = new StringBuilder();
-            sb.append("package org.vaadin.addon.cdiproperties.annotation;\n");
+            sb.append("package ").append(getAnnotationPackage()).append(";\n");
             sb.append("import javax.inject.*;\n");
             sb.append("import java.lang.annotation.*;\n");
             sb.append("import javax.enterprise.util.*;\n");
@@ -316,15 +576,7 @@ class Generator {
             sb.append("public @interface ").append(formatAnnotationClassName())
                     .append(" {");
 
-            List<ComponentProperty> ordered = Lists.newArrayList(properties);
-            Collections.sort(ordered, new Comparator<ComponentProperty>() {
-                @Override
-                public int compare(ComponentProperty o1, ComponentProperty o2) {
-                    return o1.name.compareTo(o2.name);
-                }
-
-            });
-            for (ComponentProperty cp : ordered) {
+            for (ComponentProperty cp : properties) {
                 sb.append("\n");
                 sb.append(cp.toAnnotationMethod());
             }
@@ -334,8 +586,71 @@ class Generator {
         }
 
         public String formatAnnotationClassName() {
-            return (componentClass == AbstractComponent.class ? ""
-                    : componentClass.getSimpleName()) + "Properties";
+            return (AbstractComponent.class.getName().equals(componentName) ? ""
+                    : simpleName) + "Properties";
+        }
+
+        public String formatApplierClassName() {
+            return formatAnnotationClassName() + "Applier";
+        }
+
+        public String toApplier() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("package ").append(getApplierPackage()).append(";\n");
+            sb.append("import org.vaadin.addon.cdiproperties.PropertyApplier;\n");
+            if (!getAnnotationPackage().equals(getApplierPackage())) {
+                sb.append("import ").append(getAnnotationPackage())
+                        .append(".*;\n");
+            }
+            sb.append("import static org.vaadin.addon.cdiproperties.ComponentConfigurator.IGNORED_STRING;\n");
+            sb.append("\n\n");
+            sb.append("public final class ").append(formatApplierClassName())
+                    .append(" implements PropertyApplier<")
+                    .append(componentName).append(", ")
+                    .append(formatAnnotationClassName()).append("> {\n\n");
+            sb.append("public static final ").append(formatApplierClassName())
+                    .append(" INSTANCE = new ")
+                    .append(formatApplierClassName()).append("();\n\n");
+            boolean skipsDefaults = false;
+            for (ComponentProperty cp : properties) {
+                if (cp.setter != null && cp.componentDefault != null) {
+                    skipsDefaults = true;
+                    break;
+                }
+            }
+            sb.append("@Override\n");
+            sb.append("public void apply(").append(componentName)
+                    .append(" component, ")
+                    .append(formatAnnotationClassName())
+                    .append(" a) {\n");
+            if (skipsDefaults) {
+                // Subclasses may have other defaults
+                sb.append("\t// Values a new ").append(simpleName)
+                        .append(" already has are not set again\n");
+                sb.append("\tapply(component, a, component.getClass() == ")
+                        .append(componentName).append(".class);\n");
+                sb.append("}\n\n");
+                sb.append("@Override\n");
+                sb.append("public void applyToExisting(")
+                        .append(componentName).append(" component, ")
+                        .append(formatAnnotationClassName())
+                        .append(" a) {\n");
+                sb.append("\tapply(component, a, false);\n");
+                sb.append("}\n\n");
+                sb.append("private void apply(").append(componentName)
+                        .append(" component, ")
+                        .append(formatAnnotationClassName())
+                        .append(" a, boolean skipDefaults) {\n");
+            }
+
+            for (ComponentProperty cp : properties) {
+                if (cp.setter != null) {
+                    sb.append(cp.toApplierStatement());
+                }
+            }
+
+            sb.append("}\n\n}");
+            return sb.toString();
         }
 
         public String toProducerMethod() {
@@ -343,28 +658,106 @@ class Generator {
 
             sb.append("@Produces\n");
             sb.append("@").append(formatAnnotationClassName()).append("\n");
-            sb.append("public ").append(componentClass.getName())
-                    .append(" create").append(componentClass.getSimpleName())
+            sb.append("public ").append(componentName)
+                    .append(" create").append(simpleName)
                     .append("With").append(formatAnnotationClassName())
                     .append("(final InjectionPoint ip) throws Exception {\n");
             sb.append("\treturn cc.getComponent(")
                     .append(formatAnnotationClassName())
-                    .append(".class, ip);\n");
+                    .append(".class, ip, ")
+                    .append(formatApplierClassName())
+                    .append(".INSTANCE);\n");
             sb.append("}\n\n");
             return sb.toString();
         }
 
+        /**
+         * A bean property as the runtime needs it to apply an annotation
+         * member: its setter and the value a new instance has.
+         */
+        static class IndexedProperty {
+            private final String name;
+            private final String setter;
+            private final String parameterType;
+            private final boolean hasComponentDefault;
+            private final Object componentDefault;
+
+            IndexedProperty(PropertyDescriptor pid, Object prototype) {
+                name = pid.getName();
+                setter = pid.getWriteMethod().getName();
+                parameterType = pid.getWriteMethod().getParameterTypes()[0]
+                        .getName();
+                Object value = null;
+                boolean read = false;
+                if (pid.getReadMethod() != null) {
+                    try {
+                        value = pid.getReadMethod().invoke(prototype);
+                        read = true;
+                    } catch (Exception e) {
+                        // Always applied then
+                    }
+                }
+                hasComponentDefault = read;
+                componentDefault = value;
+            }
+
+            String getName() {
+                return name;
+            }
+
+            String getSetter() {
+                return setter;
+            }
+
+            String getParameterType() {
+                return parameterType;
+            }
+
+            boolean hasComponentDefault() {
+                return hasComponentDefault;
+            }
+
+            Object getComponentDefault() {
+                return componentDefault;
+            }
+        }
+
         static class ComponentProperty {
             private final String type;
             private final String name;
             private final String defaultValue;
+            private final String setter;
+            private final String componentDefault;
 
             public ComponentProperty(String type, String name,
                     String defaultValue) {
+                this(type, name, defaultValue, null);
+            }
+
+            public ComponentProperty(String type, String name,
+                    String defaultValue, String setter) {
+                this(type, name, defaultValue, setter, null);
+            }
+
+            /**
+             * @param componentDefault
+             *            the value a new instance of the component has, as a
+             *            literal, or null if unknown; the setter is skipped
+             *            for this value
+             */
+            public ComponentProperty(String type, String name,
+                    String defaultValue, String setter,
+                    String componentDefault) {
                 super();
                 this.type = type;
                 this.name = name;
                 this.defaultValue = defaultValue;
+                this.setter = setter;
+                this.componentDefault = componentDefault;
+            }
+
+            String getName() {
+                return name;
             }
 
             String toAnnotationMethod() {
@@ -375,6 +768,45 @@ class Generator {
                 return sb.toString();
             }
 
+            String toApplierStatement() {
+                StringBuilder condition = new StringBuilder();
+                if (type.endsWith("String")) {
+                    condition.append("!IGNORED_STRING.equals(a.").append(name)
+                            .append("())");
+                }
+                if (componentDefault != null) {
+                    StringBuilder changed = new StringBuilder("!skipDefaults || ");
+                    if (type.endsWith("String")) {
+                        changed.append("!").append(componentDefault)
+                                .append(".equals(a.").append(name)
+                                .append("())");
+                    } else {
+                        changed.append("a.").append(name).append("() != ")
+                                .append(componentDefault);
+                    }
+                    if (condition.length() > 0) {
+                        condition.append(" && (").append(changed).append(")");
+                    } else {
+                        condition.append(changed);
+                    }
+                }
+
+                // A failing setter is reported and the others still applied
+                StringBuilder sb = new StringBuilder("\ttry {\n");
+                if (condition.length() > 0) {
+                    sb.append("\t\tif (").append(condition).append(") {\n\t");
+                }
+                sb.append("\t\tcomponent.").append(setter).append("(a.")
+                        .append(name).append("());\n");
+                if (condition.length() > 0) {
+                    sb.append("\t\t}\n");
+                }
+                sb.append("\t} catch (RuntimeException e) {\n");
+                sb.append("\t\tPropertyApplier.failed(component, a, e);\n");
+                sb.append("\t}\n");
+                return sb.toString();
+            }
+
         }
     }
 
@@ -0,0 +1,330 @@
+package org.vaadin.addon.cdiproperties;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+
+import org.vaadin.addon.cdiproperties.Generator.ComponentModel;
+import org.vaadin.addon.cdiproperties.Generator.ComponentModel.ComponentProperty;
+
+import com.vaadin.ui.Component;
+
+/**
+ * Generates the properties annotations, appliers and producers while the
+ * sources are compiled.
+ * <p>
+ * With the option <code>-Acdiproperties.vaadin=true</code> the sources for
+ * all Vaadin core components are generated, together with the property index
+ * the runtime builds its apply plans from. Application components annotated
+ * with {@link GenerateProperties} are always processed.
+ * <p>
+ * The property index is only rewritten when its content changes, like the
+ * files of {@link Generator#writeFile(String, String)}. The sources however
+ * are rewritten whenever javac runs: sources left out of a round are not
+ * compiled, and incremental builds drop the outputs they are not given
+ * again. Their content is the same for the same components, and builds
+ * without changes skip javac, and with it the processor.
+ */
+public class PropertiesProcessor extends AbstractProcessor {
+
+    static final String VAADIN_OPTION = "cdiproperties.vaadin";
+
+    private boolean vaadinGenerated;
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return isVaadinEnabled() ? Collections.singleton("*") : Collections
+                .singleton(GenerateProperties.class.getName());
+    }
+
+    @Override
+    public Set<String> getSupportedOptions() {
+        Set<String> result = new HashSet<String>();
+        result.add(VAADIN_OPTION);
+        // Incremental processing category for Gradle
+        result.add(isVaadinEnabled() ? "org.gradle.annotation.processing.aggregating"
+                : "org.gradle.annotation.processing.isolating");
+        return result;
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations,
+            RoundEnvironment roundEnv) {
+        if (isVaadinEnabled() && !vaadinGenerated) {
+            vaadinGenerated = true;
+            generateVaadinComponents();
+        }
+
+        for (TypeElement element : ElementFilter.typesIn(roundEnv
+                .getElementsAnnotatedWith(GenerateProperties.class))) {
+            generateApplicationComponent(element);
+        }
+        return false;
+    }
+
+    private boolean isVaadinEnabled() {
+        return processingEnv != null
+                && Boolean.parseBoolean(processingEnv.getOptions().get(
+                        VAADIN_OPTION));
+    }
+
+    private void generateVaadinComponents() {
+        try {
+            List<ComponentModel> componentModels = Generator
+                    .createComponentModels(ComponentScanner
+                            .findComponentClasses("com.vaadin.ui"));
+
+            for (ComponentModel componentModel : componentModels) {
+                write(Generator.ANNOTATION_PACKAGE,
+                        componentModel.formatAnnotationClassName(),
+                        componentModel.toAnnotation());
+                write(Generator.APPLIER_PACKAGE,
+                        componentModel.formatApplierClassName(),
+                        componentModel.toApplier());
+            }
+            write(Generator.PRODUCER_PACKAGE, "ComponentProducers",
+                    Generator.toProducer(Generator.PRODUCER_PACKAGE,
+                            "ComponentProducers", componentModels));
+            writeResource(PropertyIndexWriter.RESOURCE_PACKAGE,
+                    PropertyIndexWriter.RESOURCE_NAME,
+                    PropertyIndexWriter.write(componentModels));
+        } catch (IOException e) {
+            error("Unable to generate the Vaadin component properties: " + e,
+                    null);
+        } catch (IntrospectionException e) {
+            error("Unable to generate the Vaadin component properties: " + e,
+                    null);
+        }
+    }
+
+    private void generateApplicationComponent(TypeElement element) {
+        if (!isAssignable(element, Component.class)
+                || element.getModifiers().contains(Modifier.ABSTRACT)
+                || !element.getModifiers().contains(Modifier.PUBLIC)
+                || element.getNestingKind().isNested()) {
+            error("@GenerateProperties requires a public, concrete, top level Component class",
+                    element);
+            return;
+        }
+
+        // Properties declared by classes that are not compiled yet are read
+        // from the sources, the rest from the closest compiled superclass
+        List<ComponentProperty> declaredProperties = new ArrayList<ComponentProperty>();
+        Set<String> names = new HashSet<String>();
+        Class<?> compiledSuperclass = null;
+        TypeElement type = element;
+        while (compiledSuperclass == null) {
+            for (ExecutableElement method : ElementFilter.methodsIn(type
+                    .getEnclosedElements())) {
+                ComponentProperty property = toProperty(method);
+                if (property != null && names.add(property.getName())) {
+                    declaredProperties.add(property);
+                }
+            }
+            type = (TypeElement) ((DeclaredType) type.getSuperclass())
+                    .asElement();
+            compiledSuperclass = loadClass(type);
+        }
+
+        String packageName = processingEnv.getElementUtils()
+                .getPackageOf(element).getQualifiedName().toString();
+        try {
+            ComponentModel componentModel = Generator.createComponentModel(
+                    element.getQualifiedName().toString(), element
+                            .getSimpleName().toString(), packageName,
+                    compiledSuperclass, declaredProperties);
+            if (componentModel == null) {
+                error("Unable to instantiate " + compiledSuperclass.getName(),
+                        element);
+                return;
+            }
+            write(packageName, componentModel.formatAnnotationClassName(),
+                    componentModel.toAnnotation(), element);
+            write(packageName, componentModel.formatApplierClassName(),
+                    componentModel.toApplier(), element);
+            String producerName = componentModel.formatAnnotationClassName()
+                    + "Producer";
+            write(packageName, producerName, Generator.toProducer(
+                    packageName, producerName,
+                    Collections.singleton(componentModel)), element);
+        } catch (IOException e) {
+            error("Unable to generate the properties: " + e, element);
+        } catch (IntrospectionException e) {
+            error("Unable to generate the properties: " + e, element);
+        }
+    }
+
+    private ComponentProperty toProperty(ExecutableElement method) {
+        String methodName = method.getSimpleName().toString();
+        if (!methodName.startsWith("set") || methodName.length() == 3
+                || method.getParameters().size() != 1
+                || method.getReturnType().getKind() != TypeKind.VOID
+                || !method.getModifiers().contains(Modifier.PUBLIC)
+                || method.getModifiers().contains(Modifier.STATIC)) {
+            return null;
+        }
+        String name = Introspector.decapitalize(methodName.substring(3));
+        if (Generator.isExcludedProperty(name)) {
+            return null;
+        }
+
+        TypeMirror parameterType = method.getParameters().get(0).asType();
+        if (parameterType.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        TypeElement parameterElement = (TypeElement) ((DeclaredType) parameterType)
+                .asElement();
+        String parameterName = parameterElement.getQualifiedName().toString();
+
+        if (String.class.getName().equals(parameterName)) {
+            return new ComponentProperty(parameterName, name,
+                    "org.vaadin.addon.cdiproperties.ComponentConfigurator.IGNORED_STRING",
+                    methodName);
+        } else if (Boolean.class.getName().equals(parameterName)) {
+            return new ComponentProperty("boolean", name, "false", methodName);
+        } else if (Double.class.getName().equals(parameterName)) {
+            return new ComponentProperty("double", name, "0.0", methodName);
+        } else if (Integer.class.getName().equals(parameterName)) {
+            return new ComponentProperty("int", name, "0", methodName);
+        } else if (Float.class.getName().equals(parameterName)) {
+            return new ComponentProperty("float", name, "0.0f", methodName);
+        } else if (Long.class.getName().equals(parameterName)) {
+            return new ComponentProperty("long", name, "0L", methodName);
+        } else if (parameterElement.getKind() == ElementKind.ENUM) {
+            for (Element constant : parameterElement.getEnclosedElements()) {
+                if (constant.getKind() == ElementKind.ENUM_CONSTANT) {
+                    return new ComponentProperty(parameterName, name,
+                            parameterName + "." + constant.getSimpleName(),
+                            methodName);
+                }
+            }
+        } else if (isBoxed(parameterType)) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                    "Skipping " + methodName + "(" + parameterName
+                            + "), annotation members of this type are not supported",
+                    method);
+        }
+        return null;
+    }
+
+    private boolean isBoxed(TypeMirror type) {
+        try {
+            processingEnv.getTypeUtils().unboxedType(type);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private Class<?> loadClass(TypeElement type) {
+        try {
+            return Class.forName(processingEnv.getElementUtils()
+                    .getBinaryName(type).toString(), false,
+                    Component.class.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+
+    private boolean isAssignable(TypeElement element, Class<?> type) {
+        TypeElement typeElement = processingEnv.getElementUtils()
+                .getTypeElement(type.getName());
+        return typeElement != null
+                && processingEnv.getTypeUtils().isAssignable(
+                        processingEnv.getTypeUtils().erasure(element.asType()),
+                        processingEnv.getTypeUtils().erasure(
+                                typeElement.asType()));
+    }
+
+    private void write(String packageName, String className, String source,
+            Element... originatingElements) throws IOException {
+        Writer writer = processingEnv.getFiler()
+                .createSourceFile(packageName + "." + className,
+                        originatingElements).openWriter();
+        try {
+            writer.write(source);
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Writes the resource to the class output unless it already has the
+     * given content.
+     */
+    private void writeResource(String packageName, String name,
+            byte[] content) throws IOException {
+        if (Arrays.equals(readResource(packageName, name), content)) {
+            return;
+        }
+        OutputStream out = processingEnv.getFiler()
+                .createResource(StandardLocation.CLASS_OUTPUT, packageName,
+                        name).openOutputStream();
+        try {
+            out.write(content);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Returns the content of the resource in the class output, or null if
+     * there is none.
+     */
+    private byte[] readResource(String packageName, String name) {
+        try {
+            InputStream in = processingEnv.getFiler()
+                    .getResource(StandardLocation.CLASS_OUTPUT, packageName,
+                            name).openInputStream();
+            try {
+                ByteArrayOutputStream content = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+                for (int read; (read = in.read(buffer)) != -1;) {
+                    content.write(buffer, 0, read);
+                }
+                return content.toByteArray();
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            return null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private void error(String message, Element element) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                message, element);
+    }
+}
@@ -0,0 +1,152 @@
+package org.vaadin.addon.cdiproperties;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.vaadin.addon.cdiproperties.Generator.ComponentModel;
+import org.vaadin.addon.cdiproperties.Generator.ComponentModel.IndexedProperty;
+
+import com.vaadin.shared.Version;
+
+/**
+ * Writes the writable bean properties of the Vaadin core components into the
+ * binary index the runtime builds its apply plans from, so that it does not
+ * have to introspect the components again. All of them are written, also
+ * the ones without an annotation member, as the runtime takes a property
+ * missing from the index as a missing setter. The format is read by PropertyIndex in
+ * cdi-properties and the two must be changed together:
+ *
+ * <pre>
+ * int     magic
+ * short   format version
+ * UTF     Vaadin version the index was generated from
+ * int     number of strings, followed by the strings as UTF
+ * int     number of component classes, each with
+ *   short   class name
+ *   short   number of properties, each with
+ *     short   property name
+ *     short   setter name
+ *     short   setter parameter type, primitive types by name
+ *     byte    tag of the value a new instance has, followed by the value
+ * </pre>
+ *
+ * Names are indices into the string table.
+ */
+class PropertyIndexWriter {
+
+    static final String RESOURCE_PACKAGE = "org.vaadin.addon.cdiproperties";
+    static final String RESOURCE_NAME = "properties.index";
+
+    static final int MAGIC = 0x43445049;
+    static final int VERSION = 2;
+
+    static final byte UNKNOWN = 0;
+    static final byte NULL = 1;
+    static final byte BOOLEAN = 2;
+    static final byte INT = 3;
+    static final byte FLOAT = 4;
+    static final byte DOUBLE = 5;
+    static final byte STRING = 6;
+    static final byte ENUM = 7;
+    static final byte CLASS = 8;
+
+    private final Map<String, Integer> strings = new LinkedHashMap<String, Integer>();
+
+    static byte[] write(Collection<ComponentModel> componentModels)
+            throws IOException {
+        return new PropertyIndexWriter().toBytes(componentModels);
+    }
+
+    private byte[] toBytes(Collection<ComponentModel> componentModels)
+            throws IOException {
+        // The string table comes first, so the entries are written aside
+        final List<ComponentModel> indexed = new ArrayList<ComponentModel>();
+        final ByteArrayOutputStream entryBytes = new ByteArrayOutputStream();
+        final DataOutputStream entries = new DataOutputStream(entryBytes);
+        for (ComponentModel componentModel : componentModels) {
+            if (!componentModel.getIndexedProperties().isEmpty()) {
+                indexed.add(componentModel);
+            }
+        }
+        entries.writeInt(indexed.size());
+        for (ComponentModel componentModel : indexed) {
+            writeString(entries, componentModel.getBinaryName());
+            entries.writeShort(componentModel.getIndexedProperties().size());
+            for (IndexedProperty property : componentModel
+                    .getIndexedProperties()) {
+                writeString(entries, property.getName());
+                writeString(entries, property.getSetter());
+                writeString(entries, property.getParameterType());
+                writeValue(entries, property);
+            }
+        }
+        entries.close();
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeUTF(Version.getFullVersion());
+        out.writeInt(strings.size());
+        for (String string : strings.keySet()) {
+            out.writeUTF(string);
+        }
+        entryBytes.writeTo(out);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private void writeValue(DataOutputStream out, IndexedProperty property)
+            throws IOException {
+        if (!property.hasComponentDefault()) {
+            out.writeByte(UNKNOWN);
+            return;
+        }
+        final Object value = property.getComponentDefault();
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(INT);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Enum) {
+            out.writeByte(ENUM);
+            writeString(out, ((Enum<?>) value).name());
+        } else if (value instanceof Class) {
+            out.writeByte(CLASS);
+            writeString(out, ((Class<?>) value).getName());
+        } else {
+            out.writeByte(UNKNOWN);
+        }
+    }
+
+    private void writeString(DataOutputStream out, String string)
+            throws IOException {
+        Integer index = strings.get(string);
+        if (index == null) {
+            if (strings.size() == 0x10000) {
+                throw new IOException("Too many names for the property index");
+            }
+            index = strings.size();
+            strings.put(string, index);
+        }
+        out.writeShort(index);
+    }
+}
@@ -0,0 +1,92 @@
+package org.vaadin.addon.cdiproperties;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Component configuration metrics of one properties annotation, as exposed
+ * by {@link PropertiesMetricsMXBean}. Times are in microseconds.
+ */
+public class AnnotationMetrics {
+
+    private final String annotation;
+    private final long componentsCreated;
+    private final double meanMicros;
+    private final long p99Micros;
+    private final long maxMicros;
+    private final long applyMicros;
+    private final long customPropertyMicros;
+    private final long failures;
+    private final long[] latencyHistogram;
+
+    @ConstructorProperties({ "annotation", "componentsCreated", "meanMicros",
+            "p99Micros", "maxMicros", "applyMicros", "customPropertyMicros",
+            "failures", "latencyHistogram" })
+    public AnnotationMetrics(String annotation, long componentsCreated,
+            double meanMicros, long p99Micros, long maxMicros,
+            long applyMicros, long customPropertyMicros, long failures,
+            long[] latencyHistogram) {
+        this.annotation = annotation;
+        this.componentsCreated = componentsCreated;
+        this.meanMicros = meanMicros;
+        this.p99Micros = p99Micros;
+        this.maxMicros = maxMicros;
+        this.applyMicros = applyMicros;
+        this.customPropertyMicros = customPropertyMicros;
+        this.failures = failures;
+        this.latencyHistogram = latencyHistogram.clone();
+    }
+
+    /**
+     * The fully qualified name of the annotation type.
+     */
+    public String getAnnotation() {
+        return annotation;
+    }
+
+    public long getComponentsCreated() {
+        return componentsCreated;
+    }
+
+    public double getMeanMicros() {
+        return meanMicros;
+    }
+
+    public long getP99Micros() {
+        return p99Micros;
+    }
+
+    public long getMaxMicros() {
+        return maxMicros;
+    }
+
+    /**
+     * Total time spent in applying the bean setters of the annotation.
+     */
+    public long getApplyMicros() {
+        return applyMicros;
+    }
+
+    /**
+     * Total time spent in the custom properties (size, margin, text keys,
+     * ...).
+     */
+    public long getCustomPropertyMicros() {
+        return customPropertyMicros;
+    }
+
+    /**
+     * Failures that were logged or replaced with a placeholder text instead
+     * of failing the injection.
+     */
+    public long getFailures() {
+        return failures;
+    }
+
+    /**
+     * Component creation latencies; element 0 counts creations below 1 µs,
+     * element i below 2^i µs and the last element everything longer.
+     */
+    public long[] getLatencyHistogram() {
+        return latencyHistogram.clone();
+    }
+}
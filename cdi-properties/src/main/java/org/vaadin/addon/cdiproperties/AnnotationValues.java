@@ -0,0 +1,124 @@
+package org.vaadin.addon.cdiproperties;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Immutable snapshot of the member values of a property annotation. Custom
+ * properties read the annotation through this snapshot instead of invoking
+ * the annotation members reflectively.
+ */
+public final class AnnotationValues {
+
+    // Guards against unbounded growth when annotation literals are created
+    // dynamically with ever changing values
+    private static final int MAX_CACHED = 4096;
+    private static final ConcurrentMap<Annotation, AnnotationValues> snapshots = new ConcurrentHashMap<Annotation, AnnotationValues>();
+
+    private final Annotation annotation;
+    private final Map<String, Object> values;
+
+    private AnnotationValues(Annotation annotation) {
+        this.annotation = annotation;
+        final Method[] members = annotation.annotationType()
+                .getDeclaredMethods();
+        final Map<String, Object> result = new HashMap<String, Object>(
+                members.length * 2);
+        for (Method member : members) {
+            if (member.getParameterTypes().length == 0) {
+                try {
+                    member.setAccessible(true);
+                    result.put(member.getName(), member.invoke(annotation));
+                } catch (IllegalAccessException e) {
+                    e.printStackTrace();
+                } catch (InvocationTargetException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        values = Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Returns the snapshot of the given annotation. Snapshots are shared by
+     * all value-equal annotation instances.
+     */
+    public static AnnotationValues of(Annotation annotation) {
+        AnnotationValues result = snapshots.get(annotation);
+        if (result == null) {
+            result = new AnnotationValues(annotation);
+            if (snapshots.size() < MAX_CACHED) {
+                final AnnotationValues existing = snapshots.putIfAbsent(
+                        annotation, result);
+                if (existing != null) {
+                    result = existing;
+                }
+            }
+        }
+        return result;
+    }
+
+    public Annotation getAnnotation() {
+        return annotation;
+    }
+
+    public Class<? extends Annotation> getAnnotationType() {
+        return annotation.annotationType();
+    }
+
+    public boolean has(String member) {
+        return values.containsKey(member);
+    }
+
+    /**
+     * Returns the value of the given member, or null if the annotation does
+     * not declare it. Array values are copied, as the snapshot is shared;
+     * the built-in custom properties read them with {@link #getShared}.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String member) {
+        Object value = values.get(member);
+        if (value != null && value.getClass().isArray()) {
+            final int length = Array.getLength(value);
+            final Object copy = Array.newInstance(value.getClass()
+                    .getComponentType(), length);
+            System.arraycopy(value, 0, copy, 0, length);
+            value = copy;
+        }
+        return (T) value;
+    }
+
+    /**
+     * Returns the value like {@link #get(String)}, but arrays without a
+     * copy. The caller must not modify them.
+     */
+    @SuppressWarnings("unchecked")
+    <T> T getShared(String member) {
+        return (T) values.get(member);
+    }
+
+    public String getString(String member) {
+        return (String) values.get(member);
+    }
+
+    public boolean getBoolean(String member) {
+        return Boolean.TRUE.equals(values.get(member));
+    }
+
+    /**
+     * Returns true if the member is declared and its value is something else
+     * than {@link ComponentConfigurator#IGNORED_STRING}.
+     */
+    public boolean isSet(String member) {
+        final Object value = values.get(member);
+        return value != null
+                && !ComponentConfigurator.IGNORED_STRING.equals(value);
+    }
+}
@@ -0,0 +1,478 @@
+package org.vaadin.addon.cdiproperties;
+
+import com.vaadin.ui.Component;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.WrongMethodTypeException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Prebuilt list of annotation members and the component setters they are
+ * applied with, compiled into method handles. Plans are built once per
+ * component class, annotation type and set of members handled by custom
+ * properties, and shared by all sessions. The
+ * setters of the Vaadin core components are taken from the
+ * {@link PropertyIndex}, others are introspected with {@link BeanProperties}.
+ * <p>
+ * Plans for new components skip the values a new instance already has.
+ * Plans for existing components, which may have been changed since, apply
+ * every member.
+ */
+final class ApplyPlan {
+
+    private static final Logger logger = Logger.getLogger(ApplyPlan.class
+            .getName());
+    private static final String VAADIN_UI_PACKAGE = "com.vaadin.ui.";
+    private static final ConcurrentMap<Key, ApplyPlan> plans = new ConcurrentHashMap<Key, ApplyPlan>();
+
+    private static final MethodType STEP_TYPE = MethodType.methodType(
+            void.class, Component.class, Annotation.class);
+    private static final MethodHandle IS_APPLIED;
+    private static final MethodHandle DIFFERS;
+    private static final Map<Class<?>, MethodHandle> PRIMITIVE_DIFFERS = new HashMap<Class<?>, MethodHandle>();
+    private static final MethodHandle NO_OP;
+    private static final Map<String, Class<?>> PRIMITIVES = new HashMap<String, Class<?>>();
+
+    static {
+        try {
+            IS_APPLIED = MethodHandles.lookup().findStatic(ApplyPlan.class,
+                    "isApplied",
+                    MethodType.methodType(boolean.class, String.class));
+            DIFFERS = MethodHandles.lookup().findStatic(
+                    ApplyPlan.class,
+                    "differs",
+                    MethodType.methodType(boolean.class, Object.class,
+                            Object.class));
+            for (Class<?> type : new Class<?>[] { boolean.class, int.class,
+                    long.class, float.class, double.class }) {
+                PRIMITIVE_DIFFERS.put(type, MethodHandles.lookup()
+                        .findStatic(ApplyPlan.class, "differs",
+                                MethodType.methodType(boolean.class, type,
+                                        type)));
+            }
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+        NO_OP = MethodHandles.constant(Object.class, null).asType(
+                MethodType.methodType(void.class));
+        for (Class<?> primitive : new Class<?>[] { boolean.class, byte.class,
+                char.class, short.class, int.class, long.class, float.class,
+                double.class }) {
+            PRIMITIVES.put(primitive.getName(), primitive);
+        }
+    }
+
+    private final MethodHandle[] steps;
+    private final List<String> problems;
+
+    private ApplyPlan(List<MethodHandle> steps, List<String> problems) {
+        this.steps = steps.toArray(new MethodHandle[steps.size()]);
+        this.problems = Collections.unmodifiableList(problems);
+    }
+
+    /**
+     * Returns the plan applying the members of the annotation type that are
+     * not among the given custom members to new components.
+     */
+    static ApplyPlan of(Class<? extends Component> componentClass,
+            Class<? extends Annotation> annotationType,
+            Set<String> customMembers) {
+        return of(componentClass, annotationType, customMembers, true);
+    }
+
+    /**
+     * Returns the plan applying the members of the annotation type that are
+     * not among the given custom members to components that may have been
+     * changed since they were created.
+     */
+    static ApplyPlan ofExisting(Class<? extends Component> componentClass,
+            Class<? extends Annotation> annotationType,
+            Set<String> customMembers) {
+        return of(componentClass, annotationType, customMembers, false);
+    }
+
+    private static ApplyPlan of(Class<? extends Component> componentClass,
+            Class<? extends Annotation> annotationType,
+            Set<String> customMembers, boolean skipDefaults) {
+        final Key key = new Key(componentClass, annotationType,
+                customMembers, skipDefaults);
+        ApplyPlan plan = plans.get(key);
+        if (plan == null) {
+            plan = build(componentClass, annotationType, customMembers,
+                    skipDefaults);
+            final ApplyPlan existing = plans.putIfAbsent(key, plan);
+            if (existing != null) {
+                plan = existing;
+            }
+        }
+        return plan;
+    }
+
+    private static ApplyPlan build(Class<? extends Component> componentClass,
+            Class<? extends Annotation> annotationType,
+            Set<String> customMembers, boolean skipDefaults) {
+        final Map<String, PropertyIndex.Property> indexed = PropertyIndex
+                .get(componentClass);
+        if (indexed != null) {
+            final ApplyPlan plan = buildFromIndex(componentClass,
+                    annotationType, customMembers, skipDefaults, indexed);
+            if (plan != null) {
+                return plan;
+            }
+        }
+        return introspect(componentClass, annotationType, customMembers,
+                skipDefaults);
+    }
+
+    /**
+     * Builds the plan from the property index, or returns null if the index
+     * does not match the component class.
+     */
+    private static ApplyPlan buildFromIndex(
+            Class<? extends Component> componentClass,
+            Class<? extends Annotation> annotationType,
+            Set<String> customMembers, boolean skipDefaults,
+            Map<String, PropertyIndex.Property> indexed) {
+        final List<MethodHandle> steps = new ArrayList<MethodHandle>();
+        final List<String> problems = new ArrayList<String>();
+        for (Method member : getMembers(annotationType, customMembers)) {
+            final PropertyIndex.Property property = indexed.get(member
+                    .getName());
+            if (property == null) {
+                // The index has all the writable properties of the class
+                problems.add(describe(annotationType, member)
+                        + " has no setter on " + componentClass.getName());
+                continue;
+            }
+            try {
+                final Class<?> parameterType = loadType(
+                        property.getParameterType(),
+                        componentClass.getClassLoader());
+                final Method setter = componentClass.getMethod(
+                        property.getSetter(), parameterType);
+                boolean hasDefault = skipDefaults
+                        && property.hasComponentDefault();
+                Object defaultValue = null;
+                if (hasDefault) {
+                    try {
+                        defaultValue = property.getComponentDefault(
+                                parameterType, componentClass.getClassLoader());
+                    } catch (ClassNotFoundException e) {
+                        hasDefault = false;
+                    } catch (RuntimeException e) {
+                        hasDefault = false;
+                    }
+                }
+                steps.add(toStep(member, setter, hasDefault, defaultValue));
+            } catch (ReflectiveOperationException e) {
+                logger.log(Level.FINE, "Property index does not match "
+                        + componentClass.getName(), e);
+                return null;
+            } catch (WrongMethodTypeException e) {
+                return null;
+            }
+        }
+
+        for (String problem : problems) {
+            logger.warning(problem);
+        }
+        return new ApplyPlan(steps, problems);
+    }
+
+    private static Class<?> loadType(String name, ClassLoader classLoader)
+            throws ClassNotFoundException {
+        final Class<?> primitive = PRIMITIVES.get(name);
+        return primitive != null ? primitive : Class.forName(name, false,
+                classLoader);
+    }
+
+    private static Method[] getMembers(
+            Class<? extends Annotation> annotationType,
+            Set<String> customMembers) {
+        final List<Method> result = new ArrayList<Method>();
+        for (Method member : annotationType.getDeclaredMethods()) {
+            if (member.getParameterTypes().length == 0
+                    && !customMembers.contains(member.getName())) {
+                result.add(member);
+            }
+        }
+        final Method[] members = result.toArray(new Method[result.size()]);
+        Arrays.sort(members, new Comparator<Method>() {
+            @Override
+            public int compare(Method o1, Method o2) {
+                return o1.getName().compareTo(o2.getName());
+            }
+        });
+        return members;
+    }
+
+    private static ApplyPlan introspect(
+            Class<? extends Component> componentClass,
+            Class<? extends Annotation> annotationType,
+            Set<String> customMembers, boolean skipDefaults) {
+        final List<MethodHandle> steps = new ArrayList<MethodHandle>();
+        final List<String> problems = new ArrayList<String>();
+        final Map<String, Method> writeMethods = new HashMap<String, Method>();
+        final Map<String, Method> readMethods = new HashMap<String, Method>();
+        final String introspectionProblem = BeanProperties.read(
+                componentClass, writeMethods, readMethods);
+        if (introspectionProblem != null) {
+            problems.add(introspectionProblem);
+        }
+
+        final Component prototype = skipDefaults ? newPrototype(componentClass)
+                : null;
+        for (Method member : getMembers(annotationType, customMembers)) {
+            final Method setter = writeMethods.get(member.getName());
+            if (setter == null) {
+                problems.add(describe(annotationType, member)
+                        + " has no setter on " + componentClass.getName());
+                continue;
+            }
+            // The setter is skipped for the value the prototype has
+            boolean hasDefault = false;
+            Object defaultValue = null;
+            final Method getter = readMethods.get(member.getName());
+            if (prototype != null && getter != null) {
+                try {
+                    makeAccessible(getter);
+                    defaultValue = getter.invoke(prototype);
+                    hasDefault = true;
+                } catch (InvocationTargetException e) {
+                    // No default to compare with, always apply
+                } catch (IllegalAccessException e) {
+                    // No default to compare with, always apply
+                }
+            }
+            try {
+                steps.add(toStep(member, setter, hasDefault, defaultValue));
+            } catch (IllegalAccessException e) {
+                problems.add(describe(annotationType, member)
+                        + " can not be applied with " + setter + ": "
+                        + e.getMessage());
+            } catch (WrongMethodTypeException e) {
+                problems.add(describe(annotationType, member)
+                        + " does not match the parameter type of " + setter);
+            }
+        }
+
+        for (String problem : problems) {
+            logger.warning(problem);
+        }
+        return new ApplyPlan(steps, problems);
+    }
+
+    private static String describe(Class<? extends Annotation> annotationType,
+            Method member) {
+        return "@" + annotationType.getSimpleName() + "." + member.getName();
+    }
+
+    /**
+     * Returns a new instance of the component for reading its default
+     * values, or null if it can not be created. Only Vaadin core components
+     * are instantiated, as application components may have side effects in
+     * their constructors.
+     */
+    private static Component newPrototype(
+            Class<? extends Component> componentClass) {
+        if (componentClass.getClassLoader() != Component.class
+                .getClassLoader()
+                || !componentClass.getName().startsWith(VAADIN_UI_PACKAGE)) {
+            return null;
+        }
+        try {
+            return componentClass.getConstructor().newInstance();
+        } catch (Exception e) {
+            logger.log(Level.FINE, "Unable to read the defaults of "
+                    + componentClass.getName(), e);
+        } catch (LinkageError e) {
+            logger.log(Level.FINE, "Unable to read the defaults of "
+                    + componentClass.getName(), e);
+        }
+        return null;
+    }
+
+    /**
+     * Combines the member getter and the setter into a single
+     * (Component, Annotation) handle. Primitive values are passed from the
+     * getter to the setter, and compared with the default, without boxing.
+     * The setter is skipped for the default value, as a new component
+     * already has it.
+     */
+    private static MethodHandle toStep(Method member, Method setter,
+            boolean hasDefault, Object defaultValue)
+            throws IllegalAccessException {
+        final MethodHandles.Lookup lookup = MethodHandles.lookup();
+        makeAccessible(member);
+        makeAccessible(setter);
+        final Class<?> valueType = member.getReturnType();
+
+        MethodHandle target = lookup.unreflect(setter).asType(
+                MethodType.methodType(void.class,
+                        setter.getDeclaringClass(), valueType));
+        if (valueType == String.class) {
+            target = MethodHandles.guardWithTest(
+                    MethodHandles.dropArguments(IS_APPLIED, 0,
+                            setter.getDeclaringClass()), target,
+                    MethodHandles.dropArguments(NO_OP, 0, target.type()
+                            .parameterList()));
+        }
+        final MethodHandle differs = hasDefault ? differsFrom(valueType,
+                defaultValue) : null;
+        if (differs != null) {
+            target = MethodHandles.guardWithTest(MethodHandles
+                    .dropArguments(differs, 0, setter.getDeclaringClass()),
+                    target, MethodHandles.dropArguments(NO_OP, 0, target
+                            .type().parameterList()));
+        }
+        return MethodHandles.filterArguments(target, 1,
+                lookup.unreflect(member)).asType(STEP_TYPE);
+    }
+
+    /**
+     * Returns a (value) boolean handle testing whether a member value
+     * differs from the default, or null if the default can not be compared
+     * with values of the member type.
+     */
+    private static MethodHandle differsFrom(Class<?> valueType,
+            Object defaultValue) {
+        final MethodType type = MethodType.methodType(boolean.class,
+                valueType);
+        if (!valueType.isPrimitive()) {
+            return MethodHandles.insertArguments(DIFFERS, 0, defaultValue)
+                    .asType(type);
+        }
+        // byte, short and char are compared as int
+        MethodHandle differs = PRIMITIVE_DIFFERS.get(valueType);
+        if (differs == null) {
+            differs = PRIMITIVE_DIFFERS.get(int.class);
+        }
+        if (defaultValue == null) {
+            return null;
+        }
+        try {
+            return MethodHandles.insertArguments(differs, 0, defaultValue)
+                    .asType(type);
+        } catch (ClassCastException e) {
+            return null;
+        }
+    }
+
+    private static void makeAccessible(Method method) {
+        try {
+            method.setAccessible(true);
+        } catch (RuntimeException e) {
+            // Public members of exported classes remain accessible
+        }
+    }
+
+    private static boolean differs(Object defaultValue, Object value) {
+        return !Objects.deepEquals(defaultValue, value);
+    }
+
+    private static boolean differs(boolean defaultValue, boolean value) {
+        return defaultValue != value;
+    }
+
+    private static boolean differs(int defaultValue, int value) {
+        return defaultValue != value;
+    }
+
+    private static boolean differs(long defaultValue, long value) {
+        return defaultValue != value;
+    }
+
+    // Like Float.equals, so that NaN is skipped and -0.0 applied
+    private static boolean differs(float defaultValue, float value) {
+        return Float.floatToIntBits(defaultValue) != Float
+                .floatToIntBits(value);
+    }
+
+    private static boolean differs(double defaultValue, double value) {
+        return Double.doubleToLongBits(defaultValue) != Double
+                .doubleToLongBits(value);
+    }
+
+    private static boolean isApplied(String value) {
+        return !ComponentConfigurator.IGNORED_STRING.equals(value);
+    }
+
+    /**
+     * Members of the annotation that could not be mapped to a setter. These
+     * are reported once, when the plan is built.
+     */
+    List<String> getProblems() {
+        return problems;
+    }
+
+    void apply(Component component, Annotation propertyAnnotation) {
+        for (MethodHandle step : steps) {
+            try {
+                step.invokeExact(component, propertyAnnotation);
+            } catch (Error e) {
+                throw e;
+            } catch (Throwable e) {
+                failed(component, propertyAnnotation, e);
+            }
+        }
+    }
+
+    static void failed(Component component, Annotation propertyAnnotation,
+            Throwable e) {
+        Metrics.failed(propertyAnnotation.annotationType());
+        logger.log(Level.WARNING, "Unable to apply a property of @"
+                + propertyAnnotation.annotationType().getSimpleName()
+                + " to " + component.getClass().getName(), e);
+    }
+
+    private static final class Key {
+        private final Class<?> componentClass;
+        private final Class<?> annotationType;
+        private final Set<String> customMembers;
+        private final boolean skipDefaults;
+
+        Key(Class<?> componentClass, Class<?> annotationType,
+                Set<String> customMembers, boolean skipDefaults) {
+            this.componentClass = componentClass;
+            this.annotationType = annotationType;
+            this.customMembers = customMembers;
+            this.skipDefaults = skipDefaults;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return componentClass == other.componentClass
+                    && annotationType == other.annotationType
+                    && skipDefaults == other.skipDefaults
+                    && customMembers.equals(other.customMembers);
+        }
+
+        // The members are left out, as they rarely differ and the sets are
+        // usually the same instance
+        @Override
+        public int hashCode() {
+            return 31 * componentClass.hashCode() + annotationType.hashCode();
+        }
+    }
+}
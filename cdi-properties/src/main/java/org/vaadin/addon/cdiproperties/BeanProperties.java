@@ -0,0 +1,42 @@
+package org.vaadin.addon.cdiproperties;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.util.Map;
+
+/**
+ * The setters and getters of component classes, introspected with
+ * java.beans. Kept apart from {@link ApplyPlan}, so that java.beans is only
+ * loaded for components that are not in the {@link PropertyIndex}.
+ */
+final class BeanProperties {
+
+    private BeanProperties() {
+    }
+
+    /**
+     * Adds the setters of the writable properties of the component class,
+     * and the getters of those, by property name. Returns the problem if the
+     * class can not be introspected, otherwise null.
+     */
+    static String read(Class<?> componentClass,
+            Map<String, Method> writeMethods, Map<String, Method> readMethods) {
+        try {
+            for (PropertyDescriptor p : Introspector.getBeanInfo(
+                    componentClass).getPropertyDescriptors()) {
+                if (p.getWriteMethod() != null) {
+                    writeMethods.put(p.getName(), p.getWriteMethod());
+                    if (p.getReadMethod() != null) {
+                        readMethods.put(p.getName(), p.getReadMethod());
+                    }
+                }
+            }
+            return null;
+        } catch (IntrospectionException e) {
+            return "Unable to introspect " + componentClass.getName() + ": "
+                    + e.getMessage();
+        }
+    }
+}
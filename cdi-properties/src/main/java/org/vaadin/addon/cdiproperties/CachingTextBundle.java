@@ -0,0 +1,63 @@
+package org.vaadin.addon.cdiproperties;
+
+import java.util.Locale;
+
+import javax.decorator.Decorator;
+import javax.decorator.Delegate;
+import javax.enterprise.inject.Any;
+import javax.inject.Inject;
+
+/**
+ * Caches the texts of the application's {@link TextBundle} in the
+ * {@link TextCache}, by the locale the bundle returns from
+ * {@link TextBundle#getLocale()} and the key. Texts of bundles that do not
+ * know their locale, and texts looked up with parameters, are not cached.
+ * Assumes that the bundle returns the same text for a key as long as its
+ * locale stays the same; fire a {@link Localizer.TextBundleUpdated} event
+ * without a Locale payload after reloading the texts.
+ * <p>
+ * Not enabled by default; enable it in the beans.xml of the application:
+ *
+ * <pre>
+ * &lt;decorators&gt;
+ *     &lt;class&gt;org.vaadin.addon.cdiproperties.CachingTextBundle&lt;/class&gt;
+ * &lt;/decorators&gt;
+ * </pre>
+ */
+@Decorator
+public abstract class CachingTextBundle implements TextBundle {
+
+    @Inject
+    @Delegate
+    @Any
+    private TextBundle delegate;
+
+    @Inject
+    private TextCache cache;
+
+    @Override
+    public String getText(String key, Object... params) {
+        if (key == null || (params != null && params.length > 0)) {
+            return delegate.getText(key, params);
+        }
+        final Locale locale = delegate.getLocale();
+        if (locale == null) {
+            return delegate.getText(key, params);
+        }
+        String text = TextCache.isReloading() ? null : cache.get(locale,
+                key);
+        if (text == null) {
+            final int generation = cache.getGeneration();
+            text = delegate.getText(key, params);
+            if (text != null) {
+                cache.put(generation, locale, key, text);
+            }
+        }
+        return text;
+    }
+
+    @Override
+    public Locale getLocale() {
+        return delegate.getLocale();
+    }
+}
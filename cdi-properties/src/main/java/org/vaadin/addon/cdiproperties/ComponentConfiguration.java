@@ -0,0 +1,149 @@
+package org.vaadin.addon.cdiproperties;
+
+import com.vaadin.ui.Component;
+
+import java.lang.annotation.Annotation;
+import java.util.function.Supplier;
+
+/**
+ * Immutable configuration of components by a property annotation, usable
+ * without injection: in renderers, loops creating many components or unit
+ * tests. The bean properties are applied with the generated applier of the
+ * annotation, as for injected components, or with a plan where there is
+ * none. Components created by the configuration skip the values a new
+ * component already has; components passed to {@link #applyTo(Component)}
+ * or returned by a supplier get every member of the annotation applied, as
+ * they may have been changed before.
+ * <p>
+ * Configurations created with {@link #of(Annotation)} apply the sizes,
+ * margins and style names but not the text keys, which need the
+ * application's {@link TextBundle}; use
+ * {@link ComponentConfigurator#getConfiguration(Annotation)} for those.
+ * Configurations are thread safe and can be kept in static fields.
+ */
+public final class ComponentConfiguration<A extends Annotation> {
+
+    private static final ComponentConfigurator.CustomPropertyIndex STANDALONE_PROPERTIES = ComponentConfigurator
+            .standaloneCustomProperties();
+
+    private final A annotation;
+    private final AnnotationValues values;
+    private final PropertyApplier<Component, A> applier;
+    // The components the applier accepts, the others get a plan
+    private final Class<?> applierComponentClass;
+    private final ComponentConfigurator.CustomPropertyIndex customProperties;
+
+    @SuppressWarnings("unchecked")
+    ComponentConfiguration(A annotation, PropertyApplier<?, A> applier,
+            ComponentConfigurator.CustomPropertyIndex customProperties) {
+        if (annotation == null) {
+            throw new IllegalArgumentException("annotation must not be null");
+        }
+        this.annotation = annotation;
+        this.values = AnnotationValues.of(annotation);
+        if (applier != null) {
+            this.applier = (PropertyApplier<Component, A>) applier;
+            this.applierComponentClass = Component.class;
+        } else {
+            final GeneratedAppliers.GeneratedApplier generated = GeneratedAppliers
+                    .get(annotation.annotationType());
+            this.applier = generated != null ? (PropertyApplier<Component, A>) generated
+                    .getApplier() : null;
+            this.applierComponentClass = generated != null ? generated
+                    .getComponentClass() : null;
+        }
+        this.customProperties = customProperties;
+    }
+
+    /**
+     * Returns a configuration of the given property annotation, such as an
+     * annotation literal or the annotation of a field. The bean properties
+     * are applied with the generated applier of the annotation type, if it
+     * has one.
+     */
+    public static <A extends Annotation> ComponentConfiguration<A> of(
+            A annotation) {
+        return new ComponentConfiguration<A>(annotation, null,
+                STANDALONE_PROPERTIES);
+    }
+
+    /**
+     * Returns a configuration that applies the bean properties with the
+     * given applier, typically a generated one. The applier must accept all
+     * the components the configuration is applied to.
+     */
+    public static <A extends Annotation> ComponentConfiguration<A> of(
+            A annotation, PropertyApplier<?, A> applier) {
+        return new ComponentConfiguration<A>(annotation, applier,
+                STANDALONE_PROPERTIES);
+    }
+
+    public A getAnnotation() {
+        return annotation;
+    }
+
+    public AnnotationValues getValues() {
+        return values;
+    }
+
+    PropertyApplier<Component, A> getApplier() {
+        return applier;
+    }
+
+    /**
+     * Applies the configuration to the given component and returns it. All
+     * the members of the annotation are applied, including the values a new
+     * component would already have.
+     */
+    public <T extends Component> T applyTo(T component) {
+        return configure(component, false);
+    }
+
+    /**
+     * Creates a component of the implementation class named by the
+     * annotation and applies the configuration to it.
+     */
+    public <T extends Component> T create() throws InstantiationException,
+            IllegalAccessException {
+        final Class<T> componentClass = values.get("implementation");
+        return configure(ComponentConstructors.newInstance(componentClass),
+                true);
+    }
+
+    /**
+     * Applies the configuration to a component of the given supplier and
+     * returns it. The component may be a shared or pre-configured one, so
+     * this is the same as {@link #applyTo(Component)}.
+     */
+    public <T extends Component> T create(Supplier<? extends T> supplier) {
+        return applyTo(supplier.get());
+    }
+
+    /**
+     * Applies the bean properties, skipping the values a new component
+     * already has if it was just created, and then the custom properties.
+     */
+    private <T extends Component> T configure(T component, boolean created) {
+        if (applier != null && applierComponentClass.isInstance(component)) {
+            if (created) {
+                applier.apply(component, annotation);
+            } else {
+                applier.applyToExisting(component, annotation);
+            }
+        } else if (created) {
+            ApplyPlan.of(component.getClass(), annotation.annotationType(),
+                    customProperties.getMembers()).apply(component,
+                    annotation);
+        } else {
+            ApplyPlan.ofExisting(component.getClass(),
+                    annotation.annotationType(),
+                    customProperties.getMembers()).apply(component,
+                    annotation);
+        }
+        for (ComponentConfigurator.CustomProperty customProperty : customProperties
+                .get(component.getClass())) {
+            customProperty.apply(component, values);
+        }
+        return component;
+    }
+}
@@ -4,30 +4,45 @@ import com.vaadin.server.Sizeable;
 import com.vaadin.shared.ui.MarginInfo;
 import com.vaadin.ui.*;
 
-import javax.enterprise.context.SessionScoped;
+import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.inject.Instance;
 import javax.enterprise.inject.UnsatisfiedResolutionException;
+import javax.enterprise.inject.spi.Annotated;
+import javax.enterprise.inject.spi.AnnotatedParameter;
 import javax.enterprise.inject.spi.InjectionPoint;
 import javax.inject.Inject;
-import java.beans.BeanInfo;
-import java.beans.IntrospectionException;
-import java.beans.Introspector;
-import java.beans.PropertyDescriptor;
 import java.io.Serializable;
 import java.lang.annotation.Annotation;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.util.HashMap;
-import java.util.Iterator;
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Member;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 @SuppressWarnings("serial")
-@SessionScoped
+@ApplicationScoped
 public class ComponentConfigurator implements Serializable {
 
     public final static String IGNORED_STRING = "CDI_PROPERTIES_IGNORE";
+    /**
+     * Annotation members that are handled by the built-in custom properties
+     * instead of a bean setter.
+     */
+    private static final List<String> BUILT_IN_MEMBERS = Arrays.asList(
+            "implementation", "captionKey", "descriptionKey", "valueKey",
+            "localized", "sizeFull", "sizeUndefined", "width", "height",
+            "widthValue", "heightValue", "widthUnits", "heightUnits",
+            "margin", "styleName");
     @Inject
     private Instance<CustomProperty> customProperties;
+    private transient volatile CustomPropertyIndex customPropertyIndex;
+    private transient volatile Map<ResolutionKey, Resolution> resolutions;
 
     private static Annotation getPropertyAnnotation(InjectionPoint ip,
             Class annotationClass) {
@@ -41,145 +56,434 @@ public class ComponentConfigurator implements Serializable {
         return result;
     }
 
-    private static Object getPropertyValue(Object instance, String methodName) {
-        Object result = null;
-        try {
-            result = instance.getClass().getMethod(methodName).invoke(instance);
-        } catch (IllegalArgumentException e) {
-            e.printStackTrace();
-        } catch (SecurityException e) {
-            e.printStackTrace();
-        } catch (IllegalAccessException e) {
-            e.printStackTrace();
-        } catch (InvocationTargetException e) {
-            e.printStackTrace();
-        } catch (NoSuchMethodException e) {
-            e.printStackTrace();
+    /**
+     * Returns the property annotation of the injection point and what it
+     * resolves to. The resolution is cached by the member and parameter of
+     * the injection point when the annotation is declared there; qualifiers
+     * selected at runtime, such as with Instance.select(), are resolved on
+     * every call.
+     */
+    private Resolution resolve(Class<? extends Annotation> annotationClass,
+            InjectionPoint ip) throws InstantiationException,
+            IllegalAccessException {
+        final Annotated annotated = ip.getAnnotated();
+        final Member member = ip.getMember();
+        if (annotated == null || member == null
+                || !annotated.isAnnotationPresent(annotationClass)) {
+            return new Resolution(getPropertyAnnotation(ip, annotationClass),
+                    getCustomPropertyIndex());
         }
-        return result;
+        final ResolutionKey key = new ResolutionKey(member,
+                annotated instanceof AnnotatedParameter ? ((AnnotatedParameter<?>) annotated)
+                        .getPosition() : -1, annotationClass);
+        final Map<ResolutionKey, Resolution> cache = getResolutions();
+        Resolution resolution = cache.get(key);
+        if (resolution == null) {
+            resolution = new Resolution(getPropertyAnnotation(ip,
+                    annotationClass), getCustomPropertyIndex());
+            cache.put(key, resolution);
+        }
+        return resolution;
+    }
+
+    public <T extends Component> T getComponent(
+            Class<? extends Annotation> annotationClass, InjectionPoint ip)
+            throws InstantiationException, IllegalAccessException {
+        return this.<T, Annotation> getComponent(
+                (Class<Annotation>) annotationClass, ip, null);
+    }
+
+    public <T extends Component, A extends Annotation> T getComponent(
+            Class<A> annotationClass, InjectionPoint ip,
+            PropertyApplier<? super T, A> applier)
+            throws InstantiationException, IllegalAccessException {
+        final Object trace = Tracing.beginConfiguration();
+        final boolean timed = Metrics.ENABLED || trace != null;
+        final long start = timed ? System.nanoTime() : 0L;
+        final Resolution resolution = resolve(annotationClass, ip);
+        final A propertyAnnotation = (A) resolution.propertyAnnotation;
+        final AnnotationValues values = resolution.values;
+        final T component = (T) ComponentConstructors
+                .newInstance(resolution.constructor);
+        final long instantiated = timed ? System.nanoTime() : 0L;
+
+        // Apply the setters
+        if (applier != null) {
+            applier.apply(component, propertyAnnotation);
+        } else {
+            resolution.getPlan().apply(component, propertyAnnotation);
+        }
+        final long applied = timed ? System.nanoTime() : 0L;
+
+        // Apply custom properties
+        for (CustomProperty customProperty : resolution.customProperties) {
+            final Object propertyTrace = Tracing.beginCustomProperty();
+            customProperty.apply(component, values);
+            Tracing.endCustomProperty(propertyTrace, customProperty,
+                    values.getAnnotationType(), component.getClass());
+        }
+
+        if (timed) {
+            final long end = System.nanoTime();
+            Metrics.componentCreated(values.getAnnotationType(), 1, start,
+                    instantiated, applied, end);
+            Tracing.endConfiguration(trace, ip, values.getAnnotationType(),
+                    component.getClass(), 1, start, instantiated, applied,
+                    end);
+        }
+        return component;
+    }
+
+    /**
+     * Creates the given number of components configured by the property
+     * annotation, such as an annotation literal. The implementation, the
+     * setters and the custom properties are resolved once for the whole
+     * batch, and the texts of the text keys are looked up once. The count
+     * must not be negative.
+     */
+    public <T extends Component, A extends Annotation> List<T> getComponents(
+            A propertyAnnotation, int count) throws InstantiationException,
+            IllegalAccessException {
+        return getComponents(propertyAnnotation, count, null);
     }
 
-    private static void applyProperties(Component component,
-                                        Annotation propertyAnnotation) {
-        try {
-            final BeanInfo bi = Introspector.getBeanInfo(component.getClass());
-            HashMap<String, Method> methods = new HashMap<>(bi.getPropertyDescriptors().length);
-            for (PropertyDescriptor p : bi.getPropertyDescriptors()) {
-                methods.put(p.getName(), p.getWriteMethod());
+    /**
+     * Creates the given number of components configured by the property
+     * annotation, applying its bean properties with the given applier.
+     */
+    public <T extends Component, A extends Annotation> List<T> getComponents(
+            A propertyAnnotation, int count,
+            PropertyApplier<? super T, A> applier)
+            throws InstantiationException, IllegalAccessException {
+        if (count < 0) {
+            throw new IllegalArgumentException(
+                    "count must not be negative: " + count);
+        }
+        final Object trace = Tracing.beginConfiguration();
+        final boolean timed = Metrics.ENABLED || trace != null;
+        final long start = timed ? System.nanoTime() : 0L;
+        final AnnotationValues values = AnnotationValues
+                .of(propertyAnnotation);
+        final Class<T> componentClass = values.get("implementation");
+        final MethodHandle constructor = ComponentConstructors
+                .of(componentClass);
+        final List<T> components = new ArrayList<T>(count);
+        for (int i = 0; i < count; i++) {
+            components.add(componentClass.cast(ComponentConstructors
+                    .newInstance(constructor)));
+        }
+        final long instantiated = timed ? System.nanoTime() : 0L;
+
+        // Apply the setters
+        if (applier != null) {
+            for (T component : components) {
+                applier.apply(component, propertyAnnotation);
             }
+        } else {
+            final ApplyPlan plan = ApplyPlan.of(componentClass,
+                    values.getAnnotationType(), getCustomPropertyIndex()
+                            .getMembers());
+            for (T component : components) {
+                plan.apply(component, propertyAnnotation);
+            }
+        }
+        final long applied = timed ? System.nanoTime() : 0L;
 
-            for (Method method : propertyAnnotation.getClass().getMethods()) {
-                try {
-                    Object value = method.invoke(propertyAnnotation);
-                    if (!IGNORED_STRING.equals(value)) {
-                        methods.get(method.getName()).invoke(component, value);
+        // Apply custom properties
+        if (count > 0) {
+            for (CustomProperty customProperty : getCustomPropertyIndex()
+                    .get(componentClass)) {
+                final Object propertyTrace = Tracing.beginCustomProperty();
+                customProperty.applyAll(components, values);
+                Tracing.endCustomProperty(propertyTrace, customProperty,
+                        values.getAnnotationType(), componentClass);
+            }
+        }
+
+        if (timed) {
+            final long end = System.nanoTime();
+            Metrics.componentCreated(values.getAnnotationType(), count,
+                    start, instantiated, applied, end);
+            Tracing.endConfiguration(trace, null, values.getAnnotationType(),
+                    componentClass, count, start, instantiated, applied, end);
+        }
+        return components;
+    }
+
+    /**
+     * Returns a configuration of the given property annotation that applies
+     * all the custom properties of the application, including the text
+     * keys.
+     */
+    public <A extends Annotation> ComponentConfiguration<A> getConfiguration(
+            A propertyAnnotation) {
+        return new ComponentConfiguration<A>(propertyAnnotation, null,
+                getCustomPropertyIndex());
+    }
+
+    /**
+     * Returns a configuration like {@link #getConfiguration(Annotation)}
+     * that applies the bean properties with the given applier.
+     */
+    public <A extends Annotation> ComponentConfiguration<A> getConfiguration(
+            A propertyAnnotation, PropertyApplier<?, A> applier) {
+        return new ComponentConfiguration<A>(propertyAnnotation, applier,
+                getCustomPropertyIndex());
+    }
+
+    /**
+     * The built-in custom properties that do not need injection.
+     */
+    static CustomPropertyIndex standaloneCustomProperties() {
+        return new CustomPropertyIndex(Arrays.<CustomProperty> asList(
+                new CustomPropertySize(), new CustomPropertyMargin(),
+                new CustomPropertyStyleName()));
+    }
+
+    /**
+     * Returns the annotation members handled by the built-in and the given
+     * custom properties instead of a bean setter.
+     */
+    static Set<String> getCustomMembers(
+            Iterable<? extends CustomProperty> customProperties) {
+        final Set<String> result = new HashSet<String>(BUILT_IN_MEMBERS);
+        for (CustomProperty customProperty : customProperties) {
+            result.addAll(customProperty.getMembers());
+        }
+        return Collections.unmodifiableSet(result);
+    }
+
+    /**
+     * Returns the resolution cache, created on first use and again after
+     * deserialization. Created under the lock so that concurrent injections
+     * share one cache.
+     */
+    private Map<ResolutionKey, Resolution> getResolutions() {
+        Map<ResolutionKey, Resolution> cache = resolutions;
+        if (cache == null) {
+            synchronized (this) {
+                cache = resolutions;
+                if (cache == null) {
+                    cache = new ConcurrentHashMap<ResolutionKey, Resolution>();
+                    resolutions = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Returns the index of the custom properties, created like
+     * {@link #getResolutions()}.
+     */
+    private CustomPropertyIndex getCustomPropertyIndex() {
+        CustomPropertyIndex index = customPropertyIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = customPropertyIndex;
+                if (index == null) {
+                    final List<CustomProperty> contributors = new ArrayList<CustomProperty>();
+                    for (CustomProperty customProperty : customProperties) {
+                        contributors.add(customProperty);
                     }
-                } catch (Exception e) {
-                    // Ignore
+                    index = new CustomPropertyIndex(contributors);
+                    customPropertyIndex = index;
                 }
             }
-        } catch (IntrospectionException e) {
-            // Ignore
+        }
+        return index;
+    }
+
+    /**
+     * What the property annotation of an injection point resolves to. The
+     * apply plan is only resolved when there is no generated applier.
+     */
+    private static final class Resolution {
+        final Annotation propertyAnnotation;
+        final AnnotationValues values;
+        final Class<? extends Component> componentClass;
+        final MethodHandle constructor;
+        final CustomProperty[] customProperties;
+        private final Set<String> customMembers;
+        private volatile ApplyPlan plan;
+
+        Resolution(Annotation propertyAnnotation,
+                CustomPropertyIndex customPropertyIndex)
+                throws InstantiationException, IllegalAccessException {
+            this.propertyAnnotation = propertyAnnotation;
+            values = AnnotationValues.of(propertyAnnotation);
+            componentClass = values.get("implementation");
+            constructor = ComponentConstructors.of(componentClass);
+            customProperties = customPropertyIndex.get(componentClass);
+            customMembers = customPropertyIndex.getMembers();
         }
 
+        ApplyPlan getPlan() {
+            ApplyPlan result = plan;
+            if (result == null) {
+                result = ApplyPlan.of(componentClass,
+                        propertyAnnotation.annotationType(), customMembers);
+                plan = result;
+            }
+            return result;
+        }
     }
 
-    public <T extends Component> T getComponent(
-            Class<? extends Annotation> annotationClass, InjectionPoint ip)
-            throws InstantiationException, IllegalAccessException {
-        Annotation propertyAnnotation = getPropertyAnnotation(ip,
-                annotationClass);
-        Class<T> componentClass = (Class) getPropertyValue(propertyAnnotation,
-                "implementation");
-        Component component = componentClass.newInstance();
+    private static final class ResolutionKey {
+        private final Member member;
+        private final int position;
+        private final Class<?> annotationClass;
 
-        // Apply the setters
-        applyProperties(component, propertyAnnotation);
+        ResolutionKey(Member member, int position, Class<?> annotationClass) {
+            this.member = member;
+            this.position = position;
+            this.annotationClass = annotationClass;
+        }
 
-        // Apply custom properties
-        Iterator<CustomProperty> iterator = customProperties.iterator();
-        while (iterator.hasNext()) {
-            CustomProperty customProperty = iterator.next();
-            if (customProperty.appliesTo(component)) {
-                customProperty.apply(component, propertyAnnotation);
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof ResolutionKey)) {
+                return false;
             }
+            final ResolutionKey other = (ResolutionKey) obj;
+            return member.equals(other.member) && position == other.position
+                    && annotationClass == other.annotationClass;
         }
 
-        return (T) component;
+        @Override
+        public int hashCode() {
+            return 31 * (31 * member.hashCode() + position)
+                    + annotationClass.hashCode();
+        }
+    }
+
+    /**
+     * The custom properties that apply to each component class, resolved
+     * once per class.
+     */
+    static class CustomPropertyIndex extends ClassValue<CustomProperty[]> {
+        private final List<CustomProperty> contributors;
+        private final Set<String> members;
+
+        CustomPropertyIndex(List<CustomProperty> contributors) {
+            this.contributors = contributors;
+            members = getCustomMembers(contributors);
+        }
+
+        /**
+         * The annotation members the apply plans leave to the custom
+         * properties.
+         */
+        Set<String> getMembers() {
+            return members;
+        }
+
+        @Override
+        protected CustomProperty[] computeValue(Class<?> type) {
+            final List<CustomProperty> result = new ArrayList<CustomProperty>();
+            for (CustomProperty customProperty : contributors) {
+                if (customProperty.appliesTo(type)) {
+                    result.add(customProperty);
+                }
+            }
+            return result.toArray(new CustomProperty[result.size()]);
+        }
     }
 
     public static abstract class CustomProperty {
-        abstract void apply(Component component, Annotation propertyAnnotation);
+        private final Class<?> componentType;
+        private final List<String> members;
+
+        protected CustomProperty() {
+            this(Component.class);
+        }
 
-        abstract boolean appliesTo(Component component);
+        /**
+         * @param componentType
+         *            the type of components this property applies to
+         * @param members
+         *            the annotation members this property consumes; they
+         *            are not expected to have a matching bean setter
+         */
+        protected CustomProperty(Class<?> componentType, String... members) {
+            this.componentType = componentType;
+            this.members = Arrays.asList(members);
+        }
+
+        List<String> getMembers() {
+            return members;
+        }
+
+        protected abstract void apply(Component component,
+                AnnotationValues values);
+
+        /**
+         * Applies this property to a batch of components of the same class,
+         * configured by the same annotation. Override to share work, such as
+         * text lookups, between the components.
+         */
+        protected void applyAll(List<? extends Component> components,
+                AnnotationValues values) {
+            for (Component component : components) {
+                apply(component, values);
+            }
+        }
+
+        /**
+         * Decides once per component class whether this property applies to
+         * its instances.
+         */
+        protected boolean appliesTo(Class<?> componentClass) {
+            return componentType.isAssignableFrom(componentClass);
+        }
     }
 
     private static class CustomPropertySize extends CustomProperty {
         @Override
-        void apply(Component component, Annotation propertyAnnotation) {
-            Boolean sizeFull = (Boolean) getPropertyValue(propertyAnnotation,
-                    "sizeFull");
-            Boolean sizeUndefined = (Boolean) getPropertyValue(
-                    propertyAnnotation, "sizeUndefined");
-
-            if (sizeFull) {
+        protected void apply(Component component, AnnotationValues values) {
+            if (values.getBoolean("sizeFull")) {
                 component.setSizeFull();
-            } else if (sizeUndefined) {
+            } else if (values.getBoolean("sizeUndefined")) {
                 component.setSizeUndefined();
             } else {
-                String height = (String) getPropertyValue(propertyAnnotation,
-                        "height");
-                if (!IGNORED_STRING.equals(height)) {
-                    component.setHeight(height);
-                } else {
-                    Float heightValue = (Float) getPropertyValue(
-                            propertyAnnotation, "heightValue");
-                    Sizeable.Unit unit = (Sizeable.Unit) getPropertyValue(
-                            propertyAnnotation, "heightUnits");
+                if (values.isSet("height")) {
+                    component.setHeight(values.getString("height"));
+                } else if (values.has("heightValue")) {
+                    Float heightValue = values.get("heightValue");
+                    Sizeable.Unit unit = values.get("heightUnits");
                     component.setHeight(heightValue, unit);
                 }
 
-                String width = (String) getPropertyValue(propertyAnnotation,
-                        "width");
-                if (!IGNORED_STRING.equals(width)) {
-                    component.setWidth(width);
-                } else {
-                    Float widthValue = (Float) getPropertyValue(
-                            propertyAnnotation, "widthValue");
-                    Sizeable.Unit unit = (Sizeable.Unit) getPropertyValue(
-                            propertyAnnotation, "widthUnits");
+                if (values.isSet("width")) {
+                    component.setWidth(values.getString("width"));
+                } else if (values.has("widthValue")) {
+                    Float widthValue = values.get("widthValue");
+                    Sizeable.Unit unit = values.get("widthUnits");
                     component.setWidth(widthValue, unit);
                 }
             }
         }
-
-        @Override
-        boolean appliesTo(Component component) {
-            return true;
-        }
     }
 
     private static class CustomPropertyCaptionKey extends CustomProperty {
         @Inject
-        private Instance<TextBundle> textBundle;
+        private TextBundleLookup textBundle;
         @Inject
         private Instance<Localizer> localizer;
 
         @Override
-        void apply(Component component, Annotation propertyAnnotation) {
-            final String captionKey = (String) getPropertyValue(
-                    propertyAnnotation, "captionKey");
-            final Boolean localized = (Boolean) getPropertyValue(
-                    propertyAnnotation, "localized");
-            if (!IGNORED_STRING.equals(captionKey)) {
+        protected void apply(Component component, AnnotationValues values) {
+            if (values.isSet("captionKey")) {
+                final String captionKey = values.getString("captionKey");
                 try {
-                    component.setCaption(textBundle.get().getText(captionKey));
-                    if (localized) {
+                    component.setCaption(textBundle.getText(captionKey));
+                    if (values.getBoolean("localized")) {
                         localizer.get().addLocalizedCaption(component,
                                 captionKey);
 
                     }
                 } catch (final UnsatisfiedResolutionException e) {
+                    Metrics.failed(values.getAnnotationType());
                     component.setCaption("No TextBundle implementation found!");
                 }
 
@@ -187,32 +491,55 @@ public class ComponentConfigurator implements Serializable {
         }
 
         @Override
-        boolean appliesTo(Component component) {
-            return true;
+        protected void applyAll(List<? extends Component> components,
+                AnnotationValues values) {
+            if (values.isSet("captionKey")) {
+                final String captionKey = values.getString("captionKey");
+                try {
+                    final String caption = textBundle.getText(captionKey);
+                    final Localizer target = values.getBoolean("localized") ? localizer
+                            .get() : null;
+                    for (Component component : components) {
+                        component.setCaption(caption);
+                        if (target != null) {
+                            target.addLocalizedCaption(component, captionKey);
+                        }
+                    }
+                } catch (final UnsatisfiedResolutionException e) {
+                    Metrics.failed(values.getAnnotationType());
+                    for (Component component : components) {
+                        component
+                                .setCaption("No TextBundle implementation found!");
+                    }
+                }
+            }
         }
     }
 
     private static class CustomPropertyDescriptionKey extends CustomProperty {
+        public CustomPropertyDescriptionKey() {
+            super(AbstractComponent.class);
+        }
+
         @Inject
-        private Instance<TextBundle> textBundle;
+        private TextBundleLookup textBundle;
         @Inject
         private Instance<Localizer> localizer;
 
         @Override
-        void apply(Component component, Annotation propertyAnnotation) {
-            final String descriptionKey = (String) getPropertyValue(
-                    propertyAnnotation, "descriptionKey");
-            final Boolean localized = (Boolean) getPropertyValue(
-                    propertyAnnotation, "localized");
-            if (!IGNORED_STRING.equals(descriptionKey)) {
+        protected void apply(Component component, AnnotationValues values) {
+            if (values.isSet("descriptionKey")) {
+                final String descriptionKey = values
+                        .getString("descriptionKey");
                 AbstractComponent field = (AbstractComponent) component;
                 try {
-                    field.setDescription(textBundle.get().getText(descriptionKey));
-                    if (localized) {
+                    field.setDescription(textBundle.getText(descriptionKey));
+                    if (values.getBoolean("localized")) {
                         localizer.get().addLocalizedDescription(field,
                                                             descriptionKey);
                     }
                 } catch (final UnsatisfiedResolutionException e) {
+                    Metrics.failed(values.getAnnotationType());
                     field.setDescription("No TextBundle implementation found!");
                 }
 
@@ -220,18 +547,47 @@ public class ComponentConfigurator implements Serializable {
         }
 
         @Override
-        boolean appliesTo(Component component) {
-            return (component instanceof AbstractComponent);
+        protected void applyAll(List<? extends Component> components,
+                AnnotationValues values) {
+            if (values.isSet("descriptionKey")) {
+                final String descriptionKey = values
+                        .getString("descriptionKey");
+                try {
+                    final String description = textBundle
+                            .getText(descriptionKey);
+                    final Localizer target = values.getBoolean("localized") ? localizer
+                            .get() : null;
+                    for (Component component : components) {
+                        final AbstractComponent field = (AbstractComponent) component;
+                        field.setDescription(description);
+                        if (target != null) {
+                            target.addLocalizedDescription(field,
+                                    descriptionKey);
+                        }
+                    }
+                } catch (final UnsatisfiedResolutionException e) {
+                    Metrics.failed(values.getAnnotationType());
+                    for (Component component : components) {
+                        ((AbstractComponent) component)
+                                .setDescription("No TextBundle implementation found!");
+                    }
+                }
+            }
         }
     }
 
     private static class CustomPropertyMargin extends CustomProperty {
+        public CustomPropertyMargin() {
+            super(Layout.MarginHandler.class);
+        }
+
         @Override
-        void apply(Component component, Annotation propertyAnnotation) {
+        protected void apply(Component component, AnnotationValues values) {
             MarginInfo mi = null;
-            final boolean[] margin = (boolean[]) getPropertyValue(
-                    propertyAnnotation, "margin");
-            if (margin.length == 1) {
+            final boolean[] margin = values.getShared("margin");
+            if (margin == null) {
+                return;
+            } else if (margin.length == 1) {
                 mi = new MarginInfo(margin[0]);
             } else if (margin.length == 2) {
                 mi = new MarginInfo(margin[0], margin[1], margin[0], margin[1]);
@@ -242,59 +598,46 @@ public class ComponentConfigurator implements Serializable {
             }
 
             if (mi != null) {
-                if (component instanceof AbstractOrderedLayout) {
-                    ((AbstractOrderedLayout) component).setMargin(mi);
-                } else if (component instanceof GridLayout) {
-                    ((GridLayout) component).setMargin(mi);
-                }
+                ((Layout.MarginHandler) component).setMargin(mi);
             }
         }
-
-        @Override
-        boolean appliesTo(Component component) {
-            return component instanceof AbstractOrderedLayout
-                    || component instanceof GridLayout;
-        }
     }
 
     private static class CustomPropertyStyleName extends CustomProperty {
         @Override
-        void apply(Component component, Annotation propertyAnnotation) {
-            final String[] styleNames = (String[]) getPropertyValue(
-                    propertyAnnotation, "styleName");
-            for (String styleName : styleNames) {
-                component.addStyleName(styleName);
-                ;
+        protected void apply(Component component, AnnotationValues values) {
+            final String[] styleNames = values.getShared("styleName");
+            if (styleNames != null) {
+                for (String styleName : styleNames) {
+                    component.addStyleName(styleName);
+                }
             }
         }
-
-        @Override
-        boolean appliesTo(Component component) {
-            return true;
-        }
     }
 
     private static class CustomPropertyLabelValueKey extends CustomProperty {
+        public CustomPropertyLabelValueKey() {
+            super(Label.class);
+        }
+
         @Inject
-        private Instance<TextBundle> textBundle;
+        private TextBundleLookup textBundle;
         @Inject
         private Instance<Localizer> localizer;
 
         @Override
-        void apply(Component component, Annotation propertyAnnotation) {
-            final String valueKey = (String) getPropertyValue(
-                    propertyAnnotation, "valueKey");
-            if (!IGNORED_STRING.equals(valueKey)) {
+        protected void apply(Component component, AnnotationValues values) {
+            if (values.isSet("valueKey")) {
+                final String valueKey = values.getString("valueKey");
                 try {
-                    ((Label) component).setValue(textBundle.get().getText(
+                    ((Label) component).setValue(textBundle.getText(
                             valueKey));
-                    final Boolean localized = (Boolean) getPropertyValue(
-                            propertyAnnotation, "localized");
-                    if (localized) {
+                    if (values.getBoolean("localized")) {
                         localizer.get().addLocalizedLabelValue(
                                 (Label) component, valueKey);
                     }
                 } catch (final UnsatisfiedResolutionException e) {
+                    Metrics.failed(values.getAnnotationType());
                     component.setCaption("No TextBundle implementation found!");
                 }
 
@@ -302,8 +645,29 @@ public class ComponentConfigurator implements Serializable {
         }
 
         @Override
-        boolean appliesTo(Component component) {
-            return component instanceof Label;
+        protected void applyAll(List<? extends Component> components,
+                AnnotationValues values) {
+            if (values.isSet("valueKey")) {
+                final String valueKey = values.getString("valueKey");
+                try {
+                    final String value = textBundle.getText(valueKey);
+                    final Localizer target = values.getBoolean("localized") ? localizer
+                            .get() : null;
+                    for (Component component : components) {
+                        ((Label) component).setValue(value);
+                        if (target != null) {
+                            target.addLocalizedLabelValue((Label) component,
+                                    valueKey);
+                        }
+                    }
+                } catch (final UnsatisfiedResolutionException e) {
+                    Metrics.failed(values.getAnnotationType());
+                    for (Component component : components) {
+                        component
+                                .setCaption("No TextBundle implementation found!");
+                    }
+                }
+            }
         }
     }
 }
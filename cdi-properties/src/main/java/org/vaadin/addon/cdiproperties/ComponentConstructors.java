@@ -0,0 +1,86 @@
+package org.vaadin.addon.cdiproperties;
+
+import com.vaadin.ui.Component;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Modifier;
+
+/**
+ * No-argument constructors of component classes as method handles, looked
+ * up once per class. Unlike Class.newInstance(), checked exceptions thrown
+ * by a constructor are reported as the cause of an InstantiationException.
+ */
+final class ComponentConstructors {
+
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType
+            .methodType(Component.class);
+
+    // Either the handle or the exception looking it up failed with
+    private static final ClassValue<Object> constructors = new ClassValue<Object>() {
+        @Override
+        protected Object computeValue(Class<?> type) {
+            if (Modifier.isAbstract(type.getModifiers())) {
+                return new InstantiationException(type.getName()
+                        + " is abstract");
+            }
+            try {
+                return MethodHandles.lookup()
+                        .findConstructor(type,
+                                MethodType.methodType(void.class))
+                        .asType(CONSTRUCTOR_TYPE);
+            } catch (NoSuchMethodException e) {
+                return new InstantiationException(type.getName()
+                        + " has no public no-argument constructor");
+            } catch (IllegalAccessException e) {
+                return e;
+            }
+        }
+    };
+
+    private ComponentConstructors() {
+    }
+
+    /**
+     * Returns the constructor of the given component class, taking no
+     * arguments and returning a Component.
+     */
+    static MethodHandle of(Class<? extends Component> componentClass)
+            throws InstantiationException, IllegalAccessException {
+        final Object constructor = constructors.get(componentClass);
+        if (constructor instanceof MethodHandle) {
+            return (MethodHandle) constructor;
+        }
+        // New exceptions, so that the stack traces show the caller
+        if (constructor instanceof IllegalAccessException) {
+            throw (IllegalAccessException) new IllegalAccessException(
+                    ((Exception) constructor).getMessage())
+                    .initCause((Exception) constructor);
+        }
+        throw new InstantiationException(
+                ((Exception) constructor).getMessage());
+    }
+
+    static <T extends Component> T newInstance(Class<T> componentClass)
+            throws InstantiationException, IllegalAccessException {
+        return componentClass.cast(newInstance(of(componentClass)));
+    }
+
+    /**
+     * Invokes a constructor returned by {@link #of(Class)}.
+     */
+    static Component newInstance(MethodHandle constructor)
+            throws InstantiationException {
+        try {
+            return (Component) constructor.invokeExact();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw (InstantiationException) new InstantiationException(
+                    e.toString()).initCause(e);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.vaadin.addon.cdiproperties;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+
+/**
+ * The generated {@link PropertyApplier} of each property annotation, looked
+ * up once per annotation type by the naming convention of the generator:
+ * the appliers of the Vaadin core components are in the applier package,
+ * the others next to their annotation.
+ */
+final class GeneratedAppliers {
+
+    private static final String ANNOTATION_PACKAGE = "org.vaadin.addon.cdiproperties.annotation";
+    private static final String APPLIER_PACKAGE = "org.vaadin.addon.cdiproperties.applier";
+
+    private static final Object NONE = new Object();
+
+    // The applier, or NONE if the annotation has none
+    private static final ClassValue<Object> appliers = new ClassValue<Object>() {
+        @Override
+        protected Object computeValue(Class<?> annotationType) {
+            final GeneratedApplier applier = find(annotationType);
+            return applier != null ? applier : NONE;
+        }
+    };
+
+    private GeneratedAppliers() {
+    }
+
+    /**
+     * Returns the generated applier of the given annotation type, or null if
+     * it has none.
+     */
+    static GeneratedApplier get(Class<? extends Annotation> annotationType) {
+        final Object applier = appliers.get(annotationType);
+        return applier != NONE ? (GeneratedApplier) applier : null;
+    }
+
+    private static GeneratedApplier find(Class<?> annotationType) {
+        if (annotationType.getEnclosingClass() != null
+                || annotationType.getPackage() == null) {
+            return null;
+        }
+        final String annotationPackage = annotationType.getPackage()
+                .getName();
+        final String applierName = (ANNOTATION_PACKAGE
+                .equals(annotationPackage) ? APPLIER_PACKAGE
+                : annotationPackage)
+                + "." + annotationType.getSimpleName() + "Applier";
+        try {
+            final Class<?> applierClass = Class.forName(applierName, true,
+                    annotationType.getClassLoader());
+            final Class<?> componentClass = getComponentClass(applierClass,
+                    annotationType);
+            if (componentClass == null
+                    || !Modifier.isPublic(applierClass.getModifiers())) {
+                return null;
+            }
+            return new GeneratedApplier((PropertyApplier<?, ?>) applierClass
+                    .getField("INSTANCE").get(null), componentClass);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        } catch (LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the component class of a PropertyApplier of the annotation
+     * type, or null if the class is not one.
+     */
+    private static Class<?> getComponentClass(Class<?> applierClass,
+            Class<?> annotationType) {
+        for (Type type : applierClass.getGenericInterfaces()) {
+            if (type instanceof ParameterizedType
+                    && ((ParameterizedType) type).getRawType() == PropertyApplier.class) {
+                final Type[] arguments = ((ParameterizedType) type)
+                        .getActualTypeArguments();
+                if (arguments[0] instanceof Class
+                        && arguments[1] == annotationType) {
+                    return (Class<?>) arguments[0];
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A generated applier and the components it accepts.
+     */
+    static final class GeneratedApplier {
+        private final PropertyApplier<?, ?> applier;
+        private final Class<?> componentClass;
+
+        GeneratedApplier(PropertyApplier<?, ?> applier, Class<?> componentClass) {
+            this.applier = applier;
+            this.componentClass = componentClass;
+        }
+
+        PropertyApplier<?, ?> getApplier() {
+            return applier;
+        }
+
+        Class<?> getComponentClass() {
+            return componentClass;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package org.vaadin.addon.cdiproperties;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Member;
+
+import javax.enterprise.inject.spi.AnnotatedParameter;
+import javax.enterprise.inject.spi.InjectionPoint;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+import com.vaadin.ui.Component;
+
+/**
+ * Flight Recorder events of the add-on. Only used through {@link Tracing},
+ * which loads this class on JVMs that have jdk.jfr.
+ */
+final class JfrEvents {
+
+    private static final EventType CONFIGURATION = EventType
+            .getEventType(ComponentConfigurationEvent.class);
+    private static final EventType CUSTOM_PROPERTY = EventType
+            .getEventType(CustomPropertyEvent.class);
+    private static final EventType LOCALE_UPDATE = EventType
+            .getEventType(LocaleUpdateEvent.class);
+
+    private JfrEvents() {
+    }
+
+    static boolean isAvailable() {
+        return FlightRecorder.isAvailable();
+    }
+
+    static Object beginConfiguration() {
+        if (!CONFIGURATION.isEnabled()) {
+            return null;
+        }
+        final ComponentConfigurationEvent event = new ComponentConfigurationEvent();
+        event.begin();
+        return event;
+    }
+
+    static void endConfiguration(Object trace, InjectionPoint ip,
+            Class<? extends Annotation> annotationType,
+            Class<? extends Component> implementation, int count,
+            long start, long instantiated, long applied, long end) {
+        final ComponentConfigurationEvent event = (ComponentConfigurationEvent) trace;
+        event.end();
+        if (event.shouldCommit()) {
+            final Member member = ip != null ? ip.getMember() : null;
+            if (member != null) {
+                event.declaringClass = member.getDeclaringClass();
+                event.member = describe(ip, member);
+            }
+            event.annotationType = annotationType;
+            event.implementation = implementation;
+            event.components = count;
+            event.instantiation = instantiated - start;
+            event.setters = applied - instantiated;
+            event.customProperties = end - applied;
+            event.commit();
+        }
+    }
+
+    private static String describe(InjectionPoint ip, Member member) {
+        if (ip.getAnnotated() instanceof AnnotatedParameter) {
+            return member.getName() + "#"
+                    + ((AnnotatedParameter<?>) ip.getAnnotated())
+                            .getPosition();
+        }
+        return member.getName();
+    }
+
+    static Object beginCustomProperty() {
+        if (!CUSTOM_PROPERTY.isEnabled()) {
+            return null;
+        }
+        final CustomPropertyEvent event = new CustomPropertyEvent();
+        event.begin();
+        return event;
+    }
+
+    static void endCustomProperty(Object trace, Object customProperty,
+            Class<? extends Annotation> annotationType,
+            Class<? extends Component> implementation) {
+        final CustomPropertyEvent event = (CustomPropertyEvent) trace;
+        event.end();
+        if (event.shouldCommit()) {
+            event.customProperty = customProperty.getClass();
+            event.annotationType = annotationType;
+            event.implementation = implementation;
+            event.commit();
+        }
+    }
+
+    static Object beginLocaleUpdate() {
+        if (!LOCALE_UPDATE.isEnabled()) {
+            return null;
+        }
+        final LocaleUpdateEvent event = new LocaleUpdateEvent();
+        event.begin();
+        return event;
+    }
+
+    static void endLocaleUpdate(Object trace, Object parameters, int texts,
+            int changed) {
+        final LocaleUpdateEvent event = (LocaleUpdateEvent) trace;
+        event.end();
+        if (event.shouldCommit()) {
+            event.parameters = parameters == null ? null : parameters
+                    .toString();
+            event.texts = texts;
+            event.changed = changed;
+            event.commit();
+        }
+    }
+
+    @Name("org.vaadin.addon.cdiproperties.ComponentConfiguration")
+    @Label("Component Configuration")
+    @Description("A component created and configured for a properties annotated injection point, or a batch of them")
+    @Category({ "Vaadin", "CDI Properties" })
+    static class ComponentConfigurationEvent extends Event {
+        @Label("Declaring Class")
+        Class<?> declaringClass;
+
+        @Label("Member")
+        @Description("Field, or method or constructor with the parameter position")
+        String member;
+
+        @Label("Annotation")
+        Class<?> annotationType;
+
+        @Label("Implementation")
+        Class<?> implementation;
+
+        @Label("Components")
+        @Description("More than one for a batch created with getComponents")
+        int components;
+
+        @Label("Instantiation")
+        @Timespan
+        long instantiation;
+
+        @Label("Setters")
+        @Timespan
+        long setters;
+
+        @Label("Custom Properties")
+        @Timespan
+        long customProperties;
+    }
+
+    @Name("org.vaadin.addon.cdiproperties.CustomProperty")
+    @Label("Custom Property")
+    @Description("A custom property applied to a component")
+    @Category({ "Vaadin", "CDI Properties" })
+    @Enabled(false)
+    @StackTrace(false)
+    static class CustomPropertyEvent extends Event {
+        @Label("Custom Property")
+        Class<?> customProperty;
+
+        @Label("Annotation")
+        Class<?> annotationType;
+
+        @Label("Implementation")
+        Class<?> implementation;
+    }
+
+    @Name("org.vaadin.addon.cdiproperties.LocaleUpdate")
+    @Label("Locale Update")
+    @Description("Localized texts of a UI updated after a TextBundleUpdated event")
+    @Category({ "Vaadin", "CDI Properties" })
+    static class LocaleUpdateEvent extends Event {
+        @Label("Event Payload")
+        String parameters;
+
+        @Label("Texts")
+        @Description("Localized captions, descriptions and label values updated")
+        int texts;
+
+        @Label("Changed Components")
+        @Description("Components whose texts differed from the new ones")
+        int changed;
+    }
+}
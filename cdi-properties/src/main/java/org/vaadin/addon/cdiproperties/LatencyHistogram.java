@@ -0,0 +1,91 @@
+package org.vaadin.addon.cdiproperties;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free histogram of durations with power of two microsecond buckets.
+ * Bucket 0 counts durations below 1 µs, bucket i durations below 2^i µs and
+ * the last bucket everything longer.
+ */
+final class LatencyHistogram {
+
+    static final int BUCKETS = 24;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    void record(long nanos) {
+        record(nanos, 1);
+    }
+
+    /**
+     * Records the given number of measurements of the same duration.
+     */
+    void record(long nanos, int times) {
+        final long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        buckets.addAndGet(Math.min(BUCKETS - 1,
+                64 - Long.numberOfLeadingZeros(micros)), times);
+        count.add(times);
+        totalNanos.add(nanos * times);
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+        }
+    }
+
+    long getCount() {
+        return count.sum();
+    }
+
+    double getMeanMicros() {
+        final long n = count.sum();
+        return n == 0 ? 0 : totalNanos.sum() / 1000.0 / n;
+    }
+
+    long getMaxMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(maxNanos.get());
+    }
+
+    /**
+     * Returns the upper bound of the bucket containing the given percentile,
+     * or the maximum if it falls into the last bucket.
+     */
+    long getPercentileMicros(double percentile) {
+        final long[] snapshot = getBuckets();
+        long total = 0;
+        for (long bucket : snapshot) {
+            total += bucket;
+        }
+        final long rank = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS - 1; i++) {
+            seen += snapshot[i];
+            if (seen >= rank && seen > 0) {
+                return 1L << i;
+            }
+        }
+        return getMaxMicros();
+    }
+
+    long[] getBuckets() {
+        final long[] result = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            result[i] = buckets.get(i);
+        }
+        return result;
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        count.reset();
+        totalNanos.reset();
+        maxNanos.set(0);
+    }
+}
@@ -0,0 +1,210 @@
+package org.vaadin.addon.cdiproperties;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.enterprise.inject.UnsatisfiedResolutionException;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+
+import com.vaadin.ui.Component;
+import com.vaadin.ui.UI;
+import com.vaadin.ui.UIDetachedException;
+import com.vaadin.util.CurrentInstance;
+
+/**
+ * An asynchronous locale switch of a {@link Localizer}. The texts are looked
+ * up on a background thread without the session lock, and then applied to
+ * the components in batches of {@value #DEFAULT_BATCH_SIZE} with
+ * {@link UI#access(Runnable)}, releasing the lock between the batches. A
+ * switch stops as soon as the Localizer has started a newer one.
+ * <p>
+ * The default managed executor service of the Java EE server is used when
+ * there is one, otherwise a pool of daemon threads. Neither has the request
+ * and session contexts, so the Localizer only switches asynchronously with
+ * bundles that do not need them.
+ */
+final class LocaleSwitch implements Runnable {
+
+    private static final Logger logger = Logger.getLogger(LocaleSwitch.class
+            .getName());
+
+    static final int DEFAULT_BATCH_SIZE = 200;
+    static final boolean ASYNC = Boolean
+            .getBoolean(Localizer.ASYNC_PROPERTY);
+    static final int BATCH_SIZE = Math.max(1, Integer.getInteger(
+            Localizer.BATCH_SIZE_PROPERTY, DEFAULT_BATCH_SIZE));
+
+    private static final String MANAGED_EXECUTOR = "java:comp/DefaultManagedExecutorService";
+
+    private static ExecutorService executor;
+    // True if the executor is our own pool rather than a managed one
+    private static boolean ownExecutor;
+
+    private final Localizer localizer;
+    private final UI ui;
+    private final int generation;
+    private final Component[] components;
+    private final Set<String> keys;
+    private final int textCount;
+    private final Object trace;
+    private final long start;
+    private final Object parameters;
+
+    // Written by the lookup, then only read and written in UI.access
+    private Map<String, String> texts;
+    private boolean resolved;
+    private int next;
+    private int changed;
+
+    LocaleSwitch(Localizer localizer, UI ui, int generation,
+            Component[] components, Set<String> keys, int textCount,
+            Object trace, long start, Object parameters) {
+        this.localizer = localizer;
+        this.ui = ui;
+        this.generation = generation;
+        this.components = components;
+        this.keys = keys;
+        this.textCount = textCount;
+        this.trace = trace;
+        this.start = start;
+        this.parameters = parameters;
+    }
+
+    void start() {
+        schedule();
+    }
+
+    private void schedule() {
+        try {
+            executor().execute(this);
+        } catch (RejectedExecutionException e) {
+            // Shutting down, the texts are not needed anymore
+        }
+    }
+
+    @Override
+    public void run() {
+        if (!localizer.isCurrentSwitch(generation)) {
+            return;
+        }
+        if (!resolved) {
+            texts = lookUpTexts();
+            resolved = true;
+        }
+        try {
+            ui.access(new Runnable() {
+                @Override
+                public void run() {
+                    applyBatch();
+                }
+            });
+        } catch (UIDetachedException e) {
+            // The UI is gone, so are its components
+        }
+    }
+
+    /**
+     * Looks up the texts with the UI as the current instance, so that UI
+     * scoped bundles and the locale of the UI are available. If the bundle
+     * fails here, the texts are looked up while applying them instead, and
+     * the Localizer switches synchronously from then on.
+     */
+    private Map<String, String> lookUpTexts() {
+        final Map<Class<?>, CurrentInstance> old = CurrentInstance
+                .setCurrent(ui);
+        try {
+            return localizer.lookUpTexts(keys, parameters);
+        } catch (UnsatisfiedResolutionException e) {
+            Metrics.failed(null);
+            return null;
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING,
+                    "Unable to look up the texts outside of a request, "
+                            + "switching the locale synchronously from now on",
+                    e);
+            localizer.disableAsyncSwitch();
+            return new HashMap<String, String>();
+        } finally {
+            CurrentInstance.restoreInstances(old);
+        }
+    }
+
+    private void applyBatch() {
+        final int to = Math.min(next + BATCH_SIZE, components.length);
+        final int batchChanged = localizer.applyTexts(generation, components,
+                next, to, texts);
+        if (batchChanged < 0) {
+            return;
+        }
+        changed += batchChanged;
+        next = to;
+        if (next < components.length) {
+            schedule();
+        } else {
+            localizer.localeSwitched(trace, start, parameters, textCount,
+                    changed);
+        }
+    }
+
+    /**
+     * Returns the executor, looking up the managed one on the first call.
+     * That is made while observing the event, on a thread of the server.
+     */
+    private static synchronized ExecutorService executor() {
+        if (executor == null) {
+            executor = lookUpManagedExecutor();
+            ownExecutor = executor == null;
+            if (ownExecutor) {
+                executor = newPool();
+            }
+        }
+        return executor;
+    }
+
+    private static ExecutorService newPool() {
+        return Executors.newFixedThreadPool(Runtime.getRuntime()
+                .availableProcessors(), new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                final Thread thread = new Thread(r,
+                        "cdi-properties-locale-switch-"
+                                + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    private static ExecutorService lookUpManagedExecutor() {
+        try {
+            return (ExecutorService) new InitialContext()
+                    .lookup(MANAGED_EXECUTOR);
+        } catch (NamingException e) {
+            logger.log(Level.FINE, "No managed executor service found", e);
+            return null;
+        } catch (ClassCastException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Stops our own pool. A managed executor service is left to the server.
+     */
+    static synchronized void shutdown() {
+        if (executor != null && ownExecutor) {
+            executor.shutdownNow();
+        }
+        executor = null;
+    }
+}
@@ -1,81 +1,484 @@
 package org.vaadin.addon.cdiproperties;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+import javax.annotation.PostConstruct;
 import javax.enterprise.event.Observes;
-import javax.enterprise.inject.Instance;
 import javax.enterprise.inject.UnsatisfiedResolutionException;
+import javax.enterprise.inject.spi.CDI;
 import javax.inject.Inject;
 import javax.inject.Qualifier;
 
 import com.vaadin.cdi.UIScoped;
+import com.vaadin.server.ClientConnector.AttachEvent;
+import com.vaadin.server.ClientConnector.AttachListener;
 import com.vaadin.ui.Component;
 import com.vaadin.ui.Label;
 import com.vaadin.ui.AbstractComponent;
+import com.vaadin.ui.UI;
 
+/**
+ * Updates the localized texts of the components of a UI when the
+ * {@link TextBundle} changes. Components are registered weakly: the ones the
+ * application no longer references are dropped without unregistering them.
+ * Each component has a single entry referring to its text keys, and
+ * components with the same keys share them.
+ * <p>
+ * Only the components attached to the UI are updated when the bundle
+ * changes. Detached ones, such as cached views and closed windows, are
+ * updated when they are attached again.
+ * <p>
+ * With the system property {@value #ASYNC_PROPERTY} set to true, the texts
+ * are looked up on a background thread and applied in batches of
+ * {@value #BATCH_SIZE_PROPERTY} (default 200) components through
+ * {@link UI#access(Runnable)}, so that a switch does not hold the session
+ * lock for long. The TextBundle is then called with the UI as the current
+ * instance but without a request, so only application, singleton, dependent
+ * and UI scoped bundles are switched asynchronously. A switch in progress
+ * stops when another one starts. Switches outside of a UI are always
+ * synchronous.
+ */
 @SuppressWarnings("serial")
 @UIScoped
 public class Localizer implements Serializable {
 
+    public static final String ASYNC_PROPERTY = "org.vaadin.addon.cdiproperties.asyncLocaleSwitch";
+    public static final String BATCH_SIZE_PROPERTY = "org.vaadin.addon.cdiproperties.localeSwitchBatchSize";
+
+    private static final Logger logger = Logger.getLogger(Localizer.class
+            .getName());
+
     @Inject
-    private Instance<TextBundle> textBundle;
+    private TextBundleLookup textBundle;
 
-    private final Map<Component, String> localizedCaptions = new HashMap<Component, String>();
-    private final Map<Label, String> localizedLabelValues = new HashMap<Label, String>();
-    private final Map<AbstractComponent, String> localizedDescriptions = new HashMap<AbstractComponent, String>();
+    // One entry per component. Weak maps are not serializable, see
+    // writeObject and readObject
+    private transient Map<Component, LocalizedKeys> registrations = new WeakHashMap<Component, LocalizedKeys>();
+    // Components with the same keys share one LocalizedKeys instance
+    private transient Map<LocalizedKeys, LocalizedKeys> distinctKeys = new HashMap<LocalizedKeys, LocalizedKeys>();
+    // Incremented by every switch, so that an asynchronous switch still in
+    // progress stops when a newer one starts
+    private transient int generation;
+    // Set when the bundle failed outside of a request
+    private transient volatile boolean asyncDisabled;
+    // Detached components that missed a switch and have RefreshOnAttach as
+    // an attach listener. Only the keys are weak, so nothing referring to
+    // the component may be kept here
+    private transient Set<Component> stale = newStaleSet();
+
+    @PostConstruct
+    void init() {
+        Metrics.localizerCreated(this);
+    }
 
-    void updateCaption(@Observes @TextBundleUpdated final Object parameters) {
-        for (final Entry<Component, String> entry : localizedCaptions
+    synchronized void updateCaption(
+            @Observes @TextBundleUpdated final Object parameters) {
+        final Object trace = Tracing.beginLocaleUpdate();
+        final long start = Metrics.ENABLED ? System.nanoTime() : 0L;
+        final int switchGeneration = ++generation;
+
+        // Only the attached components are updated now, the others when
+        // they are attached again. Components often share keys: look each
+        // one up only once
+        final List<Component> attached = new ArrayList<Component>();
+        final Set<String> keys = new HashSet<String>();
+        int texts = 0;
+        for (final Entry<Component, LocalizedKeys> entry : registrations
                 .entrySet()) {
-            try {
-                entry.getKey().setCaption(
-                        textBundle.get().getText(entry.getValue()));
-            } catch (final UnsatisfiedResolutionException e) {
-                entry.getKey()
-                        .setCaption("No TextBundle implementation found!");
+            final Component component = entry.getKey();
+            if (component.isAttached()) {
+                attached.add(component);
+                entry.getValue().addTo(keys);
+                texts += entry.getValue().size();
+            } else {
+                markStale(component);
             }
         }
 
-        for (final Entry<Label, String> entry : localizedLabelValues.entrySet()) {
-            try {
-                entry.getKey().setValue(
-                        textBundle.get().getText(entry.getValue()));
-            } catch (final UnsatisfiedResolutionException e) {
-                entry.getKey()
-                        .setCaption("No TextBundle implementation found!");
+        final UI ui = UI.getCurrent();
+        if (LocaleSwitch.ASYNC && ui != null && !asyncDisabled
+                && textBundle.isThreadIndependent()) {
+            new LocaleSwitch(this, ui, switchGeneration, attached
+                    .toArray(new Component[attached.size()]), keys, texts,
+                    trace, start, parameters).start();
+            return;
+        }
+
+        Map<String, String> lookedUp;
+        try {
+            lookedUp = lookUpTexts(keys, parameters);
+        } catch (final UnsatisfiedResolutionException e) {
+            Metrics.failed(null);
+            lookedUp = null;
+        }
+        int changed = 0;
+        for (final Component component : attached) {
+            if (applyTexts(component, registrations.get(component), lookedUp)) {
+                changed++;
             }
         }
+        localeSwitched(trace, start, parameters, texts, changed);
+    }
 
-        for (final Entry<AbstractComponent, String> entry : localizedDescriptions.entrySet()) {
-            try {
-                entry.getKey().setDescription(
-                        textBundle.get().getText(entry.getValue()));
-            } catch (final UnsatisfiedResolutionException e) {
-                entry.getKey()
-                        .setDescription("No TextBundle implementation found!");
+    /**
+     * Looks up the texts of the keys. Reloaded texts are not read from the
+     * {@link TextCache}, which may not have observed the reload yet.
+     */
+    Map<String, String> lookUpTexts(final Set<String> keys,
+            final Object parameters) {
+        if (parameters instanceof Locale) {
+            return textBundle.getTexts(keys);
+        }
+        return TextCache.reload(new Supplier<Map<String, String>>() {
+            @Override
+            public Map<String, String> get() {
+                return textBundle.getTexts(keys);
             }
+        });
+    }
+
+    void disableAsyncSwitch() {
+        asyncDisabled = true;
+    }
+
+    synchronized boolean isCurrentSwitch(final int switchGeneration) {
+        return switchGeneration == generation;
+    }
+
+    /**
+     * Applies the texts to the given range of components, unless a newer
+     * switch has started. The current keys of the components are used, as
+     * they may have changed since the switch started. Returns the number of
+     * components whose texts changed, or -1 if the switch is outdated.
+     */
+    synchronized int applyTexts(final int switchGeneration,
+            final Component[] components, final int from, final int to,
+            final Map<String, String> texts) {
+        if (switchGeneration != generation) {
+            return -1;
         }
+        int changed = 0;
+        for (int i = from; i < to; i++) {
+            final LocalizedKeys localizedKeys = registrations
+                    .get(components[i]);
+            if (localizedKeys == null) {
+                continue;
+            }
+            if (!components[i].isAttached()) {
+                markStale(components[i]);
+            } else if (applyTexts(components[i], localizedKeys, texts)) {
+                changed++;
+            }
+        }
+        return changed;
     }
 
-    void addLocalizedCaption(final Component component, final String captionKey) {
-        localizedCaptions.put(component, captionKey);
+    /**
+     * Applies the texts to the component, skipping the ones it already has:
+     * setting the same text again would still send it to the client.
+     * Returns true if any of the texts changed.
+     */
+    private boolean applyTexts(final Component component,
+            final LocalizedKeys localizedKeys, final Map<String, String> texts) {
+        if (!stale.isEmpty()) {
+            clearStale(component);
+        }
+        boolean changed = false;
+        if (localizedKeys.caption != null) {
+            changed |= setCaption(component, texts != null ? getText(texts,
+                    localizedKeys.caption)
+                    : "No TextBundle implementation found!");
+        }
+        if (localizedKeys.labelValue != null) {
+            if (texts != null) {
+                final Label label = (Label) component;
+                final String value = getText(texts, localizedKeys.labelValue);
+                if (!Objects.equals(value, label.getValue())) {
+                    label.setValue(value);
+                    changed = true;
+                }
+            } else {
+                changed |= setCaption(component,
+                        "No TextBundle implementation found!");
+            }
+        }
+        if (localizedKeys.description != null) {
+            final AbstractComponent field = (AbstractComponent) component;
+            final String description = texts != null ? getText(texts,
+                    localizedKeys.description)
+                    : "No TextBundle implementation found!";
+            if (!Objects.equals(description, field.getDescription())) {
+                field.setDescription(description);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private static boolean setCaption(final Component component,
+            final String caption) {
+        if (Objects.equals(caption, component.getCaption())) {
+            return false;
+        }
+        component.setCaption(caption);
+        return true;
+    }
+
+    /**
+     * Returns the text of the key, looking it up if it is not among the
+     * texts yet.
+     */
+    private String getText(final Map<String, String> texts, final String key) {
+        String text = texts.get(key);
+        if (text == null && !texts.containsKey(key)) {
+            text = textBundle.getText(key);
+            texts.put(key, text);
+        }
+        return text;
+    }
+
+    void localeSwitched(final Object trace, final long start,
+            final Object parameters, final int texts, final int changed) {
+        if (Metrics.ENABLED) {
+            Metrics.localeSwitched(System.nanoTime() - start, texts, changed);
+        }
+        Tracing.endLocaleUpdate(trace, parameters, texts, changed);
     }
 
-    void addLocalizedLabelValue(final Label label, final String labelValueKey) {
-        localizedLabelValues.put(label, labelValueKey);
+    /**
+     * Leaves the texts of a detached component to be updated when it is
+     * attached again.
+     */
+    private void markStale(final Component component) {
+        if (stale.add(component)) {
+            component.addAttachListener(RefreshOnAttach.INSTANCE);
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private void clearStale(final Component component) {
+        if (stale.remove(component)) {
+            component.removeAttachListener(RefreshOnAttach.INSTANCE);
+        }
+    }
+
+    private static Set<Component> newStaleSet() {
+        return Collections.newSetFromMap(new WeakHashMap<Component, Boolean>());
     }
 
-    void addLocalizedDescription(final AbstractComponent field, final String descriptionKey) {
-        localizedDescriptions.put(field, descriptionKey);
+    /**
+     * Updates the texts of a component that missed locale switches while it
+     * was detached.
+     */
+    synchronized void refresh(final Component component) {
+        final LocalizedKeys localizedKeys = registrations.get(component);
+        if (localizedKeys == null) {
+            clearStale(component);
+            return;
+        }
+        try {
+            applyTexts(component, localizedKeys,
+                    new HashMap<String, String>());
+        } catch (final UnsatisfiedResolutionException e) {
+            Metrics.failed(null);
+            applyTexts(component, localizedKeys, null);
+        }
+    }
+
+    synchronized int getRegistrationCount() {
+        int result = 0;
+        for (LocalizedKeys keys : registrations.values()) {
+            result += keys.size();
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of detached components waiting to be updated on
+     * attach.
+     */
+    synchronized int getStaleCount() {
+        return stale.size();
+    }
+
+    synchronized void addLocalizedCaption(final Component component, final String captionKey) {
+        final LocalizedKeys keys = registrations.get(component);
+        register(component, keys == null ? new LocalizedKeys(captionKey,
+                null, null) : new LocalizedKeys(captionKey, keys.labelValue,
+                keys.description));
+    }
+
+    synchronized void addLocalizedLabelValue(final Label label, final String labelValueKey) {
+        final LocalizedKeys keys = registrations.get(label);
+        register(label, keys == null ? new LocalizedKeys(null, labelValueKey,
+                null) : new LocalizedKeys(keys.caption, labelValueKey,
+                keys.description));
+    }
+
+    synchronized void addLocalizedDescription(final AbstractComponent field, final String descriptionKey) {
+        final LocalizedKeys keys = registrations.get(field);
+        register(field, keys == null ? new LocalizedKeys(null, null,
+                descriptionKey) : new LocalizedKeys(keys.caption,
+                keys.labelValue, descriptionKey));
+    }
+
+    private void register(final Component component, final LocalizedKeys keys) {
+        LocalizedKeys shared = distinctKeys.get(keys);
+        if (shared == null) {
+            shared = keys;
+            distinctKeys.put(shared, shared);
+        }
+        registrations.put(component, shared);
+    }
+
+    /**
+     * Stops updating the texts of the given component. Components that are
+     * no longer referenced are dropped automatically; this is for components
+     * that stay around but should keep their current texts.
+     */
+    public synchronized void unregister(final Component component) {
+        registrations.remove(component);
+        clearStale(component);
+    }
+
+    private synchronized void writeObject(final ObjectOutputStream out)
+            throws IOException {
+        out.defaultWriteObject();
+        out.writeInt(registrations.size());
+        for (final Entry<Component, LocalizedKeys> entry : registrations
+                .entrySet()) {
+            out.writeObject(entry.getKey());
+            out.writeObject(entry.getValue());
+            out.writeBoolean(stale.contains(entry.getKey()));
+        }
+    }
+
+    private void readObject(final ObjectInputStream in) throws IOException,
+            ClassNotFoundException {
+        in.defaultReadObject();
+        registrations = new WeakHashMap<Component, LocalizedKeys>();
+        distinctKeys = new HashMap<LocalizedKeys, LocalizedKeys>();
+        stale = newStaleSet();
+        for (int i = in.readInt(); i > 0; i--) {
+            final Component component = (Component) in.readObject();
+            register(component, (LocalizedKeys) in.readObject());
+            // The attach listener was serialized with the component
+            if (in.readBoolean()) {
+                stale.add(component);
+            }
+        }
+    }
+
+    /**
+     * Refreshes stale components on attach. Looks up the Localizer of the
+     * current UI, as the listener is serialized with the component.
+     */
+    private static final class RefreshOnAttach implements AttachListener {
+        static final RefreshOnAttach INSTANCE = new RefreshOnAttach();
+
+        @Override
+        public void attach(final AttachEvent event) {
+            try {
+                CDI.current().select(Localizer.class).get()
+                        .refresh((Component) event.getConnector());
+            } catch (final RuntimeException e) {
+                logger.log(Level.WARNING,
+                        "Unable to update the localized texts of "
+                                + event.getConnector(), e);
+            }
+        }
+
+        // Listeners are removed by identity, keep the instance single
+        // across session serialization
+        private Object readResolve() {
+            return INSTANCE;
+        }
+    }
+
+    /**
+     * The text keys of a component; null for the texts that are not
+     * localized. Immutable, so that it can be shared.
+     */
+    private static final class LocalizedKeys implements Serializable {
+        private final String caption;
+        private final String labelValue;
+        private final String description;
+
+        LocalizedKeys(String caption, String labelValue, String description) {
+            this.caption = caption;
+            this.labelValue = labelValue;
+            this.description = description;
+        }
+
+        void addTo(Set<String> keys) {
+            if (caption != null) {
+                keys.add(caption);
+            }
+            if (labelValue != null) {
+                keys.add(labelValue);
+            }
+            if (description != null) {
+                keys.add(description);
+            }
+        }
+
+        int size() {
+            return (caption != null ? 1 : 0) + (labelValue != null ? 1 : 0)
+                    + (description != null ? 1 : 0);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof LocalizedKeys)) {
+                return false;
+            }
+            final LocalizedKeys other = (LocalizedKeys) obj;
+            return equal(caption, other.caption)
+                    && equal(labelValue, other.labelValue)
+                    && equal(description, other.description);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * hash(caption) + hash(labelValue))
+                    + hash(description);
+        }
+
+        private static boolean equal(String a, String b) {
+            return a == null ? b == null : a.equals(b);
+        }
+
+        private static int hash(String s) {
+            return s == null ? 0 : s.hashCode();
+        }
     }
 
+    /**
+     * Qualifies the event that makes the Localizers update their texts. Use
+     * the new Locale as the payload when only the locale changes, anything
+     * else when the texts of the bundle have changed.
+     */
     @Qualifier
     @Target({ ElementType.PARAMETER, ElementType.FIELD })
     @Retention(RetentionPolicy.RUNTIME)
@@ -0,0 +1,292 @@
+package org.vaadin.addon.cdiproperties;
+
+import java.lang.annotation.Annotation;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Collects the metrics exposed through {@link PropertiesMetricsMXBean}. All
+ * recording methods return immediately unless metrics are enabled; the check
+ * is against a constant, so the JIT removes them entirely.
+ */
+final class Metrics implements PropertiesMetricsMXBean {
+
+    static final boolean ENABLED = Boolean.getBoolean(ENABLED_PROPERTY);
+
+    private static final Logger logger = Logger.getLogger(Metrics.class
+            .getName());
+    private static final Metrics INSTANCE = new Metrics();
+    // Unique per copy of the add-on, so that each deployment with its own
+    // copy registers its own bean
+    private static final String NAME = OBJECT_NAME + ",deployment="
+            + Integer.toHexString(System.identityHashCode(INSTANCE));
+    // Deployments sharing this copy, which share its metrics too
+    private static int registrations;
+
+    private final ConcurrentMap<Class<? extends Annotation>, AnnotationStats> annotations = new ConcurrentHashMap<Class<? extends Annotation>, AnnotationStats>();
+    private final LongAdder failures = new LongAdder();
+    private final LatencyHistogram localeSwitches = new LatencyHistogram();
+    private final LongAdder localeSwitchComponents = new LongAdder();
+    private final LongAdder localeSwitchChangedComponents = new LongAdder();
+    private volatile TextCache textCache;
+    private final Set<Localizer> localizers = Collections
+            .newSetFromMap(Collections
+                    .synchronizedMap(new WeakHashMap<Localizer, Boolean>()));
+
+    private Metrics() {
+    }
+
+    /**
+     * Records the creation of one or a batch of components from the
+     * System.nanoTime() taken at the start, after instantiation, after the
+     * setters and at the end. Each component of a batch is recorded with
+     * the mean latency.
+     */
+    static void componentCreated(Class<? extends Annotation> annotationType,
+            int count, long start, long instantiated, long applied, long end) {
+        if (ENABLED && count > 0) {
+            INSTANCE.getStats(annotationType).record(count, start,
+                    instantiated, applied, end);
+        }
+    }
+
+    static void failed(Class<? extends Annotation> annotationType) {
+        if (ENABLED) {
+            INSTANCE.failures.increment();
+            if (annotationType != null) {
+                INSTANCE.getStats(annotationType).failures.increment();
+            }
+        }
+    }
+
+    static void localeSwitched(long nanos, int components, int changed) {
+        if (ENABLED) {
+            INSTANCE.localeSwitches.record(nanos);
+            INSTANCE.localeSwitchComponents.add(components);
+            INSTANCE.localeSwitchChangedComponents.add(changed);
+        }
+    }
+
+    static void localizerCreated(Localizer localizer) {
+        if (ENABLED) {
+            INSTANCE.localizers.add(localizer);
+        }
+    }
+
+    static void textCacheCreated(TextCache textCache) {
+        if (ENABLED) {
+            INSTANCE.textCache = textCache;
+        }
+    }
+
+    static synchronized void register() {
+        if (registrations++ > 0) {
+            return;
+        }
+        try {
+            final MBeanServer server = ManagementFactory
+                    .getPlatformMBeanServer();
+            final ObjectName name = new ObjectName(NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(INSTANCE, name);
+            }
+        } catch (JMException e) {
+            logger.log(Level.WARNING, "Unable to register " + NAME, e);
+        }
+    }
+
+    static synchronized void unregister() {
+        if (registrations == 0 || --registrations > 0) {
+            return;
+        }
+        try {
+            final MBeanServer server = ManagementFactory
+                    .getPlatformMBeanServer();
+            final ObjectName name = new ObjectName(NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException e) {
+            logger.log(Level.WARNING, "Unable to unregister " + NAME, e);
+        }
+    }
+
+    private AnnotationStats getStats(Class<? extends Annotation> annotationType) {
+        AnnotationStats stats = annotations.get(annotationType);
+        if (stats == null) {
+            stats = new AnnotationStats();
+            final AnnotationStats existing = annotations.putIfAbsent(
+                    annotationType, stats);
+            if (existing != null) {
+                stats = existing;
+            }
+        }
+        return stats;
+    }
+
+    @Override
+    public List<AnnotationMetrics> getAnnotationMetrics() {
+        final List<AnnotationMetrics> result = new ArrayList<AnnotationMetrics>();
+        for (Map.Entry<Class<? extends Annotation>, AnnotationStats> entry : annotations
+                .entrySet()) {
+            result.add(entry.getValue().toMetrics(entry.getKey().getName()));
+        }
+        return result;
+    }
+
+    @Override
+    public long getComponentsCreated() {
+        long result = 0;
+        for (AnnotationStats stats : annotations.values()) {
+            result += stats.latency.getCount();
+        }
+        return result;
+    }
+
+    @Override
+    public long getSwallowedFailures() {
+        return failures.sum();
+    }
+
+    private List<Integer> getRegistrationCounts() {
+        final List<Integer> result = new ArrayList<Integer>();
+        synchronized (localizers) {
+            for (Localizer localizer : localizers) {
+                final int count = localizer.getRegistrationCount();
+                if (count > 0) {
+                    result.add(count);
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public int getLocalizedUIs() {
+        return getRegistrationCounts().size();
+    }
+
+    @Override
+    public int getLocalizedRegistrations() {
+        int result = 0;
+        for (int count : getRegistrationCounts()) {
+            result += count;
+        }
+        return result;
+    }
+
+    @Override
+    public int getMaxLocalizedRegistrationsPerUI() {
+        int result = 0;
+        for (int count : getRegistrationCounts()) {
+            result = Math.max(result, count);
+        }
+        return result;
+    }
+
+    @Override
+    public long getLocaleSwitches() {
+        return localeSwitches.getCount();
+    }
+
+    @Override
+    public double getLocaleSwitchMeanMicros() {
+        return localeSwitches.getMeanMicros();
+    }
+
+    @Override
+    public long getLocaleSwitchP99Micros() {
+        return localeSwitches.getPercentileMicros(99);
+    }
+
+    @Override
+    public long getLocaleSwitchMaxMicros() {
+        return localeSwitches.getMaxMicros();
+    }
+
+    @Override
+    public long[] getLocaleSwitchHistogram() {
+        return localeSwitches.getBuckets();
+    }
+
+    @Override
+    public long getLocaleSwitchComponents() {
+        return localeSwitchComponents.sum();
+    }
+
+    @Override
+    public long getLocaleSwitchChangedComponents() {
+        return localeSwitchChangedComponents.sum();
+    }
+
+    @Override
+    public long getTextCacheHits() {
+        final TextCache cache = textCache;
+        return cache == null ? 0 : cache.getHitCount();
+    }
+
+    @Override
+    public long getTextCacheMisses() {
+        final TextCache cache = textCache;
+        return cache == null ? 0 : cache.getMissCount();
+    }
+
+    @Override
+    public long getTextCacheEvictions() {
+        final TextCache cache = textCache;
+        return cache == null ? 0 : cache.getEvictionCount();
+    }
+
+    @Override
+    public int getTextCacheSize() {
+        final TextCache cache = textCache;
+        return cache == null ? 0 : cache.getSize();
+    }
+
+    @Override
+    public void reset() {
+        annotations.clear();
+        failures.reset();
+        localeSwitches.reset();
+        localeSwitchComponents.reset();
+        localeSwitchChangedComponents.reset();
+    }
+
+    private static final class AnnotationStats {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder applyNanos = new LongAdder();
+        private final LongAdder customPropertyNanos = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+
+        void record(int count, long start, long instantiated, long applied,
+                long end) {
+            latency.record((end - start) / count, count);
+            applyNanos.add(applied - instantiated);
+            customPropertyNanos.add(end - applied);
+        }
+
+        AnnotationMetrics toMetrics(String annotation) {
+            return new AnnotationMetrics(annotation, latency.getCount(),
+                    latency.getMeanMicros(),
+                    latency.getPercentileMicros(99), latency.getMaxMicros(),
+                    TimeUnit.NANOSECONDS.toMicros(applyNanos.sum()),
+                    TimeUnit.NANOSECONDS.toMicros(customPropertyNanos.sum()),
+                    failures.sum(), latency.getBuckets());
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package org.vaadin.addon.cdiproperties;
+
+import com.vaadin.ui.Component;
+
+import javax.enterprise.context.spi.CreationalContext;
+import javax.enterprise.event.Observes;
+import javax.enterprise.inject.spi.AfterDeploymentValidation;
+import javax.enterprise.inject.spi.Bean;
+import javax.enterprise.inject.spi.BeanManager;
+import javax.enterprise.inject.spi.BeforeShutdown;
+import javax.enterprise.inject.spi.DeploymentException;
+import javax.enterprise.inject.spi.Extension;
+import javax.enterprise.inject.spi.ProcessInjectionPoint;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collects the property annotations used at the injection points of the
+ * application and prepares their configuration plans during deployment.
+ * Members that can not be applied are reported as deployment problems.
+ * Registers the {@link PropertiesMetricsMXBean} when metrics are enabled.
+ */
+public class PropertiesExtension implements Extension {
+
+    private static final String GENERATED_PACKAGE = "org.vaadin.addon.cdiproperties.annotation";
+
+    private final Set<Annotation> propertyAnnotations = Collections
+            .newSetFromMap(new ConcurrentHashMap<Annotation, Boolean>());
+
+    <T, X> void collectPropertyAnnotations(
+            @Observes ProcessInjectionPoint<T, X> event) {
+        for (Annotation qualifier : event.getInjectionPoint().getQualifiers()) {
+            if (isPropertyAnnotation(qualifier.annotationType())) {
+                propertyAnnotations.add(qualifier);
+            }
+        }
+    }
+
+    void prepare(@Observes AfterDeploymentValidation event,
+            BeanManager beanManager) {
+        final Set<String> customMembers = getCustomMembers(beanManager);
+
+        for (Annotation annotation : propertyAnnotations) {
+            final Class<?> implementation = AnnotationValues.of(annotation)
+                    .get("implementation");
+            final String usage = "@"
+                    + annotation.annotationType().getSimpleName()
+                    + "(implementation = " + implementation.getName()
+                    + ".class)";
+            if (!Component.class.isAssignableFrom(implementation)) {
+                event.addDeploymentProblem(new DeploymentException(usage
+                        + ": not a Component"));
+                continue;
+            }
+            if (Modifier.isAbstract(implementation.getModifiers())) {
+                event.addDeploymentProblem(new DeploymentException(usage
+                        + ": implementation can not be abstract"));
+                continue;
+            }
+            try {
+                implementation.getConstructor();
+            } catch (NoSuchMethodException e) {
+                event.addDeploymentProblem(new DeploymentException(usage
+                        + ": implementation has no public no-arg constructor"));
+                continue;
+            }
+
+            // Generated annotations are applied by their generated appliers
+            if (!GENERATED_PACKAGE.equals(annotation.annotationType()
+                    .getPackage().getName())) {
+                final ApplyPlan plan = ApplyPlan.of(
+                        implementation.asSubclass(Component.class),
+                        annotation.annotationType(), customMembers);
+                for (String problem : plan.getProblems()) {
+                    event.addDeploymentProblem(new DeploymentException(
+                            problem));
+                }
+            }
+        }
+        propertyAnnotations.clear();
+
+        if (Metrics.ENABLED) {
+            Metrics.register();
+        }
+    }
+
+    void unregisterMetrics(@Observes BeforeShutdown event) {
+        if (Metrics.ENABLED) {
+            Metrics.unregister();
+        }
+    }
+
+    void stopLocaleSwitches(@Observes BeforeShutdown event) {
+        LocaleSwitch.shutdown();
+    }
+
+    /**
+     * Returns the members the custom properties of the deployment handle,
+     * the same ones ComponentConfigurator builds its plans with.
+     */
+    private static Set<String> getCustomMembers(BeanManager beanManager) {
+        final List<ComponentConfigurator.CustomProperty> customProperties = new ArrayList<ComponentConfigurator.CustomProperty>();
+        for (Bean<?> bean : beanManager.getBeans(
+                ComponentConfigurator.CustomProperty.class)) {
+            final CreationalContext<?> context = beanManager
+                    .createCreationalContext(bean);
+            try {
+                customProperties
+                        .add((ComponentConfigurator.CustomProperty) beanManager
+                                .getReference(bean,
+                                        ComponentConfigurator.CustomProperty.class,
+                                        context));
+            } finally {
+                context.release();
+            }
+        }
+        return ComponentConfigurator.getCustomMembers(customProperties);
+    }
+
+    private static boolean isPropertyAnnotation(
+            Class<? extends Annotation> annotationType) {
+        try {
+            final Method implementation = annotationType
+                    .getDeclaredMethod("implementation");
+            return implementation.getReturnType() == Class.class;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+}
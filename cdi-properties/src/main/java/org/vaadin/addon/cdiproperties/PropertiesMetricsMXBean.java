@@ -0,0 +1,71 @@
+package org.vaadin.addon.cdiproperties;
+
+import java.util.List;
+
+/**
+ * Metrics of the component configuration and the {@link Localizer}.
+ * Registered as {@value #OBJECT_NAME} with a deployment key property, one
+ * per application using its own copy of the add-on, when the system property
+ * {@value #ENABLED_PROPERTY} is true. Times are in microseconds and
+ * histograms use the buckets described in
+ * {@link AnnotationMetrics#getLatencyHistogram()}.
+ */
+public interface PropertiesMetricsMXBean {
+
+    String OBJECT_NAME = "org.vaadin.addon.cdiproperties:type=PropertiesMetrics";
+    String ENABLED_PROPERTY = "org.vaadin.addon.cdiproperties.metrics";
+
+    List<AnnotationMetrics> getAnnotationMetrics();
+
+    long getComponentsCreated();
+
+    /**
+     * Failures that were logged or replaced with a placeholder text instead
+     * of failing the injection or the locale switch.
+     */
+    long getSwallowedFailures();
+
+    /**
+     * The number of UIs with a Localizer that has localized components.
+     */
+    int getLocalizedUIs();
+
+    int getLocalizedRegistrations();
+
+    int getMaxLocalizedRegistrationsPerUI();
+
+    long getLocaleSwitches();
+
+    double getLocaleSwitchMeanMicros();
+
+    long getLocaleSwitchP99Micros();
+
+    long getLocaleSwitchMaxMicros();
+
+    long[] getLocaleSwitchHistogram();
+
+    /**
+     * The number of components updated by all locale switches.
+     */
+    long getLocaleSwitchComponents();
+
+    /**
+     * The number of components whose texts were changed by all locale
+     * switches. The others already had the new texts and were left as is.
+     */
+    long getLocaleSwitchChangedComponents();
+
+    /**
+     * Lookups answered from the {@link TextCache}; zero unless
+     * {@link CachingTextBundle} is enabled.
+     */
+    long getTextCacheHits();
+
+    long getTextCacheMisses();
+
+    long getTextCacheEvictions();
+
+    int getTextCacheSize();
+
+    void reset();
+}
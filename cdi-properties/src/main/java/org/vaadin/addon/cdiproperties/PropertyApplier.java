@@ -0,0 +1,35 @@
+package org.vaadin.addon.cdiproperties;
+
+import com.vaadin.ui.Component;
+
+import java.lang.annotation.Annotation;
+
+/**
+ * Applies the bean properties of a property annotation to a component with
+ * direct setter calls. Implementations are generated for the Vaadin core
+ * components.
+ */
+public interface PropertyApplier<C extends Component, A extends Annotation> {
+    void apply(C component, A propertyAnnotation);
+
+    /**
+     * Applies the bean properties to a component that may have been changed
+     * since it was created. Unlike {@link #apply(Component, Annotation)},
+     * values a new component would already have must be set too. The
+     * generated appliers skip those in apply; by default this is the same
+     * as apply.
+     */
+    default void applyToExisting(C component, A propertyAnnotation) {
+        apply(component, propertyAnnotation);
+    }
+
+    /**
+     * Logs and counts a setter that failed while applying the annotation,
+     * like the plans for annotations without an applier do. Appliers call
+     * this for each failed setter and go on with the next one.
+     */
+    static void failed(Component component, Annotation propertyAnnotation,
+            RuntimeException e) {
+        ApplyPlan.failed(component, propertyAnnotation, e);
+    }
+}
@@ -0,0 +1,212 @@
+package org.vaadin.addon.cdiproperties;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.vaadin.shared.Version;
+
+/**
+ * The writable bean properties of the Vaadin core components, read from the
+ * binary index the generator writes next to the generated sources. The
+ * index lists every writable property, not only the ones the generated
+ * annotations have members for, so apply plans of the indexed components
+ * are built from it without introspecting the components or instantiating
+ * them for their defaults. The index is ignored if it was generated from
+ * another Vaadin version.
+ * <p>
+ * The format is written by PropertyIndexWriter in cdi-properties-generator,
+ * and the two must be changed together.
+ */
+final class PropertyIndex {
+
+    private static final Logger logger = Logger.getLogger(PropertyIndex.class
+            .getName());
+
+    static final String RESOURCE = "org/vaadin/addon/cdiproperties/properties.index";
+
+    private static final int MAGIC = 0x43445049;
+    private static final int VERSION = 2;
+
+    private static final byte UNKNOWN = 0;
+    private static final byte NULL = 1;
+    private static final byte BOOLEAN = 2;
+    private static final byte INT = 3;
+    private static final byte FLOAT = 4;
+    private static final byte DOUBLE = 5;
+    private static final byte STRING = 6;
+    private static final byte ENUM = 7;
+    private static final byte CLASS = 8;
+
+    private PropertyIndex() {
+    }
+
+    /**
+     * Returns the indexed properties of exactly the given class by name, or
+     * null if the class is not indexed.
+     */
+    static Map<String, Property> get(Class<?> componentClass) {
+        return Holder.CLASSES.get(componentClass.getName());
+    }
+
+    private static final class Holder {
+        static final Map<String, Map<String, Property>> CLASSES = load();
+    }
+
+    private static Map<String, Map<String, Property>> load() {
+        final InputStream in = PropertyIndex.class.getClassLoader()
+                .getResourceAsStream(RESOURCE);
+        if (in == null) {
+            logger.fine("No property index found, introspecting components");
+            return Collections.emptyMap();
+        }
+        try {
+            return read(readFully(in));
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Unable to read the property index "
+                    + RESOURCE + ", introspecting components instead", e);
+            return Collections.emptyMap();
+        } finally {
+            try {
+                in.close();
+            } catch (IOException e) {
+                // Read already
+            }
+        }
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(16384);
+        final byte[] buffer = new byte[8192];
+        for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+            bytes.write(buffer, 0, read);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Map<String, Map<String, Property>> read(byte[] index)
+            throws IOException {
+        final DataInputStream in = new DataInputStream(
+                new ByteArrayInputStream(index));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a property index");
+        }
+        final int version = in.readUnsignedShort();
+        if (version != VERSION) {
+            logger.warning("Ignoring the property index of format version "
+                    + version + ", expected " + VERSION);
+            return Collections.emptyMap();
+        }
+        final String vaadinVersion = in.readUTF();
+        if (!vaadinVersion.equals(Version.getFullVersion())) {
+            logger.info("Ignoring the property index generated for Vaadin "
+                    + vaadinVersion + " when running "
+                    + Version.getFullVersion());
+            return Collections.emptyMap();
+        }
+
+        final String[] strings = new String[in.readInt()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = in.readUTF();
+        }
+        final int classCount = in.readInt();
+        final Map<String, Map<String, Property>> classes = new HashMap<String, Map<String, Property>>(
+                classCount * 2);
+        for (int i = 0; i < classCount; i++) {
+            final String className = strings[in.readUnsignedShort()];
+            final int propertyCount = in.readUnsignedShort();
+            final Map<String, Property> properties = new HashMap<String, Property>(
+                    propertyCount * 2);
+            for (int j = 0; j < propertyCount; j++) {
+                final String name = strings[in.readUnsignedShort()];
+                final String setter = strings[in.readUnsignedShort()];
+                final String parameterType = strings[in.readUnsignedShort()];
+                final byte tag = in.readByte();
+                properties.put(name, new Property(setter, parameterType, tag,
+                        readValue(in, tag, strings)));
+            }
+            classes.put(className, properties);
+        }
+        logger.fine("Read the properties of " + classCount
+                + " components from the property index");
+        return classes;
+    }
+
+    private static Object readValue(DataInputStream in, byte tag,
+            String[] strings) throws IOException {
+        switch (tag) {
+        case UNKNOWN:
+        case NULL:
+            return null;
+        case BOOLEAN:
+            return in.readBoolean();
+        case INT:
+            return in.readInt();
+        case FLOAT:
+            return in.readFloat();
+        case DOUBLE:
+            return in.readDouble();
+        case STRING:
+        case ENUM:
+        case CLASS:
+            // Enum constants and classes are resolved when the plan is built
+            return strings[in.readUnsignedShort()];
+        default:
+            throw new IOException("Unknown value tag " + tag);
+        }
+    }
+
+    /**
+     * The setter of a property and the value a new instance of the
+     * component has.
+     */
+    static final class Property {
+        private final String setter;
+        private final String parameterType;
+        private final byte tag;
+        private final Object value;
+
+        Property(String setter, String parameterType, byte tag, Object value) {
+            this.setter = setter;
+            this.parameterType = parameterType;
+            this.tag = tag;
+            this.value = value;
+        }
+
+        String getSetter() {
+            return setter;
+        }
+
+        String getParameterType() {
+            return parameterType;
+        }
+
+        boolean hasComponentDefault() {
+            return tag != UNKNOWN;
+        }
+
+        /**
+         * Returns the value a new instance has, resolving enum constants of
+         * the given parameter type and classes with the loader of the
+         * component.
+         */
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        Object getComponentDefault(Class<?> parameterType,
+                ClassLoader classLoader) throws ClassNotFoundException {
+            if (tag == ENUM) {
+                return Enum.valueOf((Class<? extends Enum>) parameterType,
+                        (String) value);
+            } else if (tag == CLASS) {
+                return Class.forName((String) value, false, classLoader);
+            }
+            return value;
+        }
+    }
+}
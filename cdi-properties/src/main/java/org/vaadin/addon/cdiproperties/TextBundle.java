@@ -1,8 +1,19 @@
 package org.vaadin.addon.cdiproperties;
 
+import java.util.Locale;
+
 /**
  * Interface for a bundle implementation used for obtaining (localized) texts.
  */
 public interface TextBundle {
     String getText(String key, Object... params);
+
+    /**
+     * Returns the locale of the texts the bundle currently returns, or null
+     * if it is not known. {@link CachingTextBundle} only caches the texts of
+     * bundles that return their locale.
+     */
+    default Locale getLocale() {
+        return null;
+    }
 }
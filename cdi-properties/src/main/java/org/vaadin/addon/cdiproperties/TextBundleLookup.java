@@ -0,0 +1,105 @@
+package org.vaadin.addon.cdiproperties;
+
+import java.io.Serializable;
+import java.lang.annotation.Annotation;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Dependent;
+import javax.enterprise.context.spi.CreationalContext;
+import javax.enterprise.inject.UnsatisfiedResolutionException;
+import javax.enterprise.inject.spi.Bean;
+import javax.enterprise.inject.spi.BeanManager;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import com.vaadin.cdi.NormalUIScoped;
+import com.vaadin.cdi.UIScoped;
+
+/**
+ * Looks up texts from the application's {@link TextBundle}. Every lookup
+ * obtains a fresh contextual reference that is released right after use, so
+ * application scoped callers never accumulate dependent bundle instances.
+ */
+@SuppressWarnings("serial")
+class TextBundleLookup implements Serializable {
+
+    // Scopes that are active on any thread that has the UI as the current
+    // instance, unlike the request, session and conversation scopes
+    private static final Set<Class<? extends Annotation>> THREAD_INDEPENDENT_SCOPES = new HashSet<Class<? extends Annotation>>(
+            Arrays.asList(ApplicationScoped.class, Singleton.class,
+                    Dependent.class, UIScoped.class, NormalUIScoped.class));
+
+    @Inject
+    private BeanManager beanManager;
+
+    private transient volatile Bean<?> bundleBean;
+
+    String getText(String key) {
+        final Bean<?> bean = getBundleBean();
+        final CreationalContext<?> context = beanManager
+                .createCreationalContext(bean);
+        try {
+            return ((TextBundle) beanManager.getReference(bean,
+                    TextBundle.class, context)).getText(key);
+        } finally {
+            context.release();
+        }
+    }
+
+    /**
+     * Looks up the texts of all the given keys from the same bundle
+     * reference.
+     */
+    Map<String, String> getTexts(Collection<String> keys) {
+        final Bean<?> bean = getBundleBean();
+        final CreationalContext<?> context = beanManager
+                .createCreationalContext(bean);
+        try {
+            final TextBundle bundle = (TextBundle) beanManager.getReference(
+                    bean, TextBundle.class, context);
+            final Map<String, String> texts = new HashMap<String, String>(
+                    keys.size() * 2);
+            for (String key : keys) {
+                texts.put(key, bundle.getText(key));
+            }
+            return texts;
+        } finally {
+            context.release();
+        }
+    }
+
+    /**
+     * Returns true if the bundle can be looked up on a background thread
+     * with only the UI as the current instance. Request, session and
+     * conversation scoped bundles, and those of other scopes, need the
+     * contexts of a request. Dependent bundles are assumed not to depend on
+     * them.
+     */
+    boolean isThreadIndependent() {
+        try {
+            return THREAD_INDEPENDENT_SCOPES.contains(getBundleBean()
+                    .getScope());
+        } catch (UnsatisfiedResolutionException e) {
+            return false;
+        }
+    }
+
+    private Bean<?> getBundleBean() {
+        Bean<?> bean = bundleBean;
+        if (bean == null) {
+            bean = beanManager.resolve(beanManager.getBeans(TextBundle.class));
+            if (bean == null) {
+                throw new UnsatisfiedResolutionException(
+                        "No TextBundle implementation found");
+            }
+            bundleBean = bean;
+        }
+        return bean;
+    }
+}
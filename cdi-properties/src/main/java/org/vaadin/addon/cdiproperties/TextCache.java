@@ -0,0 +1,229 @@
+package org.vaadin.addon.cdiproperties;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+
+import org.vaadin.addon.cdiproperties.Localizer.TextBundleUpdated;
+
+/**
+ * Texts of the application's {@link TextBundle} by locale and key, shared by
+ * all UIs. Filled by {@link CachingTextBundle} when it is enabled. Reads are
+ * lock free and write a text's recency at most once between evictions, so
+ * texts read by many threads do not contend. When the cache grows over its
+ * maximum size, the texts that have gone unread for the most evictions are
+ * evicted first.
+ * <p>
+ * The cache is cleared by {@link TextBundleUpdated} events, except the ones
+ * whose payload is a {@link Locale}: those announce a locale switch, for
+ * which the cached texts remain valid. The observers of an event are called
+ * in no particular order, so the {@link Localizer} looks up the texts of a
+ * reload past the cache, see {@link #reload(Supplier)}. The maximum size is
+ * read from the system property {@value #MAX_SIZE_PROPERTY} and defaults to
+ * 10000.
+ */
+@ApplicationScoped
+public class TextCache {
+
+    public static final String MAX_SIZE_PROPERTY = "org.vaadin.addon.cdiproperties.textCacheSize";
+
+    private final int maxSize = Integer.getInteger(MAX_SIZE_PROPERTY, 10000);
+
+    private final ConcurrentMap<Key, CachedText> texts = new ConcurrentHashMap<Key, CachedText>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    // Incremented by every eviction, the recency of the texts
+    private volatile long evictionRound;
+    // Incremented by every invalidation; texts looked up in an earlier
+    // generation are not returned
+    private final AtomicInteger generation = new AtomicInteger();
+
+    // Set on the threads looking up reloaded texts
+    private static final ThreadLocal<Boolean> reloading = new ThreadLocal<Boolean>();
+
+    @PostConstruct
+    void init() {
+        Metrics.textCacheCreated(this);
+    }
+
+    /**
+     * Returns the cached text, or null if there is none.
+     */
+    String get(Locale locale, String key) {
+        final CachedText cached = texts.get(new Key(locale, key));
+        if (cached == null || cached.generation != generation.get()) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        final long round = evictionRound;
+        if (cached.lastUsed != round) {
+            cached.lastUsed = round;
+        }
+        return cached.text;
+    }
+
+    /**
+     * Returns the generation to pass to
+     * {@link #put(int, Locale, String, String)}, read before looking up the
+     * text.
+     */
+    int getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Caches a text looked up in the given generation, unless the cache has
+     * been invalidated since.
+     */
+    void put(int lookupGeneration, Locale locale, String key, String text) {
+        if (lookupGeneration != generation.get()) {
+            return;
+        }
+        texts.put(new Key(locale, key), new CachedText(text,
+                lookupGeneration, evictionRound));
+        if (texts.size() > maxSize) {
+            evict();
+        }
+    }
+
+    /**
+     * Removes the least recently used tenth of the texts. Threads that find
+     * another thread evicting carry on without waiting.
+     */
+    private void evict() {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            final List<Map.Entry<Key, CachedText>> entries = new ArrayList<Map.Entry<Key, CachedText>>(
+                    texts.entrySet());
+            Collections.sort(entries,
+                    new Comparator<Map.Entry<Key, CachedText>>() {
+                        @Override
+                        public int compare(Map.Entry<Key, CachedText> o1,
+                                Map.Entry<Key, CachedText> o2) {
+                            return Long.compare(o1.getValue().lastUsed,
+                                    o2.getValue().lastUsed);
+                        }
+                    });
+            final int target = maxSize - maxSize / 10;
+            for (int i = 0; i < entries.size() - target; i++) {
+                if (texts.remove(entries.get(i).getKey(), entries.get(i)
+                        .getValue())) {
+                    evictions.increment();
+                }
+            }
+            evictionRound++;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Looks up texts past the cache, as the cache may not have been
+     * invalidated yet by the reload event being observed. The texts are
+     * still cached, unless the cache is invalidated in between.
+     */
+    static <T> T reload(Supplier<T> lookup) {
+        final Boolean old = reloading.get();
+        reloading.set(Boolean.TRUE);
+        try {
+            return lookup.get();
+        } finally {
+            if (old == null) {
+                reloading.remove();
+            }
+        }
+    }
+
+    static boolean isReloading() {
+        return reloading.get() != null;
+    }
+
+    void textBundleUpdated(@Observes @TextBundleUpdated Object parameters) {
+        if (!(parameters instanceof Locale)) {
+            invalidate();
+        }
+    }
+
+    /**
+     * Removes all cached texts, for example after the texts of the bundle
+     * have been reloaded.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        texts.clear();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public int getSize() {
+        return texts.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    private static final class Key {
+        private final Locale locale;
+        private final String key;
+
+        Key(Locale locale, String key) {
+            this.locale = locale;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return key.equals(other.key) && locale.equals(other.locale);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * locale.hashCode() + key.hashCode();
+        }
+    }
+
+    private static final class CachedText {
+        private final String text;
+        private final int generation;
+        private volatile long lastUsed;
+
+        CachedText(String text, int generation, long lastUsed) {
+            this.text = text;
+            this.generation = generation;
+            this.lastUsed = lastUsed;
+        }
+    }
+}
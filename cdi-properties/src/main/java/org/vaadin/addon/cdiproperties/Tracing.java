@@ -0,0 +1,76 @@
+package org.vaadin.addon.cdiproperties;
+
+import java.lang.annotation.Annotation;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.enterprise.inject.spi.InjectionPoint;
+
+import com.vaadin.ui.Component;
+
+/**
+ * Emits the Flight Recorder events of {@link JfrEvents} when the running JVM
+ * supports Flight Recorder. The begin methods return null unless a recording
+ * has the event enabled, and the end methods ignore null, so there is
+ * nothing to pay when nothing is recorded. This class does not refer to
+ * jdk.jfr, so it loads on JVMs without it.
+ */
+final class Tracing {
+
+    static final boolean AVAILABLE = isAvailable();
+
+    private Tracing() {
+    }
+
+    private static boolean isAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event", false,
+                    Tracing.class.getClassLoader());
+            return JfrEvents.isAvailable();
+        } catch (ClassNotFoundException e) {
+            return false;
+        } catch (LinkageError e) {
+            Logger.getLogger(Tracing.class.getName()).log(Level.FINE,
+                    "Flight Recorder events disabled", e);
+            return false;
+        }
+    }
+
+    static Object beginConfiguration() {
+        return AVAILABLE ? JfrEvents.beginConfiguration() : null;
+    }
+
+    static void endConfiguration(Object trace, InjectionPoint ip,
+            Class<? extends Annotation> annotationType,
+            Class<? extends Component> implementation, int count,
+            long start, long instantiated, long applied, long end) {
+        if (trace != null) {
+            JfrEvents.endConfiguration(trace, ip, annotationType,
+                    implementation, count, start, instantiated, applied, end);
+        }
+    }
+
+    static Object beginCustomProperty() {
+        return AVAILABLE ? JfrEvents.beginCustomProperty() : null;
+    }
+
+    static void endCustomProperty(Object trace, Object customProperty,
+            Class<? extends Annotation> annotationType,
+            Class<? extends Component> implementation) {
+        if (trace != null) {
+            JfrEvents.endCustomProperty(trace, customProperty,
+                    annotationType, implementation);
+        }
+    }
+
+    static Object beginLocaleUpdate() {
+        return AVAILABLE ? JfrEvents.beginLocaleUpdate() : null;
+    }
+
+    static void endLocaleUpdate(Object trace, Object parameters, int texts,
+            int changed) {
+        if (trace != null) {
+            JfrEvents.endLocaleUpdate(trace, parameters, texts, changed);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package org.vaadin.addon.cdiproperties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.junit.Test;
+
+import com.vaadin.ui.TextField;
+
+public class ApplyPlanTest {
+
+    /**
+     * Members for bean properties that the generated annotations do not
+     * have, such as primitive ones.
+     */
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface FieldProperties {
+        boolean enabled();
+
+        int maxLength();
+
+        boolean readOnly();
+
+        String placeholder();
+    }
+
+    @FieldProperties(enabled = false, maxLength = 20, readOnly = true, placeholder = "Name")
+    private static TextField field;
+
+    @SuppressWarnings("serial")
+    public static class ApplicationTextField extends TextField {
+    }
+
+    @Test
+    public void indexedComponentsAreNotIntrospected() throws Exception {
+        try (WithoutJavaBeans loader = new WithoutJavaBeans()) {
+            assertEquals(Collections.emptyList(),
+                    loader.call(BuildIndexedPlan.class));
+        }
+    }
+
+    @Test
+    public void otherComponentsAreIntrospected() throws Exception {
+        try (WithoutJavaBeans loader = new WithoutJavaBeans()) {
+            loader.call(BuildIntrospectedPlan.class);
+            fail("java.beans is available");
+        } catch (NoClassDefFoundError e) {
+            assertTrue(e.getMessage().startsWith("java/beans/"));
+        }
+    }
+
+    public static class BuildIndexedPlan implements Callable<List<String>> {
+        @Override
+        public List<String> call() throws Exception {
+            final TextField textField = new TextField();
+            final ApplyPlan plan = ApplyPlan.of(TextField.class,
+                    FieldProperties.class, Collections.<String> emptySet());
+            plan.apply(textField, ApplyPlanTest.class.getDeclaredField("field")
+                    .getAnnotation(FieldProperties.class));
+            assertFalse(textField.isEnabled());
+            assertEquals(20, textField.getMaxLength());
+            assertTrue(textField.isReadOnly());
+            assertEquals("Name", textField.getPlaceholder());
+            return plan.getProblems();
+        }
+    }
+
+    public static class BuildIntrospectedPlan implements
+            Callable<List<String>> {
+        @Override
+        public List<String> call() throws Exception {
+            return ApplyPlan.of(ApplicationTextField.class,
+                    FieldProperties.class, Collections.<String> emptySet())
+                    .getProblems();
+        }
+    }
+
+    /**
+     * Loads the add-on and the tests itself, and does not let them load
+     * java.beans.
+     */
+    private static final class WithoutJavaBeans extends URLClassLoader {
+        WithoutJavaBeans() {
+            super(new URL[] { location(ApplyPlan.class),
+                    location(ApplyPlanTest.class) }, ApplyPlanTest.class
+                    .getClassLoader());
+        }
+
+        @SuppressWarnings("unchecked")
+        List<String> call(Class<?> callable) throws Exception {
+            return ((Callable<List<String>>) loadClass(callable.getName())
+                    .newInstance()).call();
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve)
+                throws ClassNotFoundException {
+            if (name.startsWith("java.beans.")) {
+                throw new ClassNotFoundException(name);
+            }
+            if (!name.startsWith("org.vaadin.addon.cdiproperties.")) {
+                return super.loadClass(name, resolve);
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> loaded = findLoadedClass(name);
+                if (loaded == null) {
+                    loaded = findClass(name);
+                }
+                if (resolve) {
+                    resolveClass(loaded);
+                }
+                return loaded;
+            }
+        }
+
+        private static URL location(Class<?> type) {
+            return type.getProtectionDomain().getCodeSource().getLocation();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package org.vaadin.addon.cdiproperties;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Locale;
+import java.util.function.Supplier;
+
+import javax.enterprise.context.ApplicationScoped;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.ui.UI;
+
+public class CachingTextBundleTest {
+
+    private TestContainer container;
+
+    @After
+    public void tearDown() {
+        container.shutdown();
+    }
+
+    @Test
+    public void textsAreCachedByTheLocaleOfTheBundle() {
+        container = TestContainer.startCaching(TestTextBundle.class);
+        final TextBundleLookup lookup = container
+                .get(TextBundleLookup.class);
+        assertEquals("en:name", lookup.getText("name"));
+        assertEquals("en:name", lookup.getText("name"));
+        container.get(TestTextBundle.class).setLocale(Locale.GERMAN);
+        assertEquals("de:name", lookup.getText("name"));
+
+        final TextCache cache = container.get(TextCache.class);
+        assertEquals(2, cache.getSize());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void textsOfBundlesWithoutLocaleAreNotCached() {
+        container = TestContainer.startCaching(UnknownLocaleTextBundle.class);
+        assertEquals("name", container.get(TextBundleLookup.class)
+                .getText("name"));
+        assertEquals(0, container.get(TextCache.class).getSize());
+    }
+
+    @Test
+    public void localeSwitchKeepsTheCache() {
+        container = TestContainer.startCaching(TestTextBundle.class,
+                LocalizerTest.View.class);
+        final LocalizerTest.View view = showView();
+        final TextCache cache = container.get(TextCache.class);
+        final int size = cache.getSize();
+
+        container.switchLocale(Locale.GERMAN);
+        assertEquals("de:name", view.name.getCaption());
+        assertEquals(size + 3, cache.getSize());
+        container.switchLocale(Locale.ENGLISH);
+        assertEquals("en:name", view.name.getCaption());
+        assertEquals(size + 3, cache.getSize());
+    }
+
+    @Test
+    public void reloadedTextsAreNotReadFromTheCache() {
+        container = TestContainer.startCaching(ReloadableTextBundle.class,
+                LocalizerTest.View.class);
+        final LocalizerTest.View view = showView();
+        assertEquals("1:name", view.name.getCaption());
+        final TextCache cache = container.get(TextCache.class);
+        assertEquals(3, cache.getSize());
+
+        container.get(ReloadableTextBundle.class).setVersion(2);
+        container.reloadTexts();
+        assertEquals("2:name", view.name.getCaption());
+        assertEquals("2:greeting", view.greeting.getValue());
+    }
+
+    /**
+     * The observers of the reload event are called in no particular order,
+     * so the Localizer may look up the texts before the cache is
+     * invalidated.
+     */
+    @Test
+    public void reloadLooksUpTextsPastTheCache() {
+        container = TestContainer.startCaching(ReloadableTextBundle.class);
+        final TextBundleLookup lookup = container
+                .get(TextBundleLookup.class);
+        assertEquals("1:name", lookup.getText("name"));
+        container.get(ReloadableTextBundle.class).setVersion(2);
+        assertEquals("1:name", lookup.getText("name"));
+
+        assertEquals("2:name", TextCache.reload(new Supplier<String>() {
+            @Override
+            public String get() {
+                return lookup.getText("name");
+            }
+        }));
+    }
+
+    private LocalizerTest.View showView() {
+        final UI ui = new TestUI();
+        ui.setSession(new VaadinSession(null));
+        final LocalizerTest.View view = container
+                .create(LocalizerTest.View.class);
+        ui.setContent(view);
+        return view;
+    }
+
+    /**
+     * Text bundle whose texts change when they are reloaded.
+     */
+    @ApplicationScoped
+    public static class ReloadableTextBundle implements TextBundle {
+        private volatile int version = 1;
+
+        @Override
+        public String getText(String key, Object... params) {
+            return version + ":" + key;
+        }
+
+        @Override
+        public Locale getLocale() {
+            return Locale.ENGLISH;
+        }
+
+        public void setVersion(int version) {
+            this.version = version;
+        }
+    }
+
+    @ApplicationScoped
+    public static class UnknownLocaleTextBundle implements TextBundle {
+        @Override
+        public String getText(String key, Object... params) {
+            return key;
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static final class TestUI extends UI {
+        @Override
+        protected void init(VaadinRequest request) {
+        }
+    }
+}
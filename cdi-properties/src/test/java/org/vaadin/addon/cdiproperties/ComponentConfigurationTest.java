@@ -0,0 +1,108 @@
+package org.vaadin.addon.cdiproperties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.annotation.Annotation;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+import org.junit.Test;
+import org.vaadin.addon.cdiproperties.annotation.TextFieldProperties;
+import org.vaadin.addon.cdiproperties.applier.TextFieldPropertiesApplier;
+
+import com.vaadin.shared.ui.ValueChangeMode;
+import com.vaadin.ui.TextField;
+
+public class ComponentConfigurationTest {
+
+    // The values a new TextField has
+    @TextFieldProperties(description = "", value = "", primaryStyleName = "v-textfield", valueChangeMode = ValueChangeMode.LAZY)
+    private static TextField textFieldDefaults;
+
+    @FieldProperties(enabled = true, valueChangeMode = ValueChangeMode.LAZY)
+    private static TextField fieldDefaults;
+
+    /**
+     * Properties of text fields without a generated applier.
+     */
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface FieldProperties {
+        boolean enabled();
+
+        ValueChangeMode valueChangeMode();
+    }
+
+    @Test
+    public void ofUsesTheGeneratedApplier() throws Exception {
+        assertSame(TextFieldPropertiesApplier.INSTANCE, ComponentConfiguration
+                .of(annotation("textFieldDefaults", TextFieldProperties.class))
+                .getApplier());
+        assertNull(ComponentConfiguration.of(
+                annotation("fieldDefaults", FieldProperties.class))
+                .getApplier());
+    }
+
+    @Test
+    public void applyToSetsTheDefaultsWithTheGeneratedApplier()
+            throws Exception {
+        final ComponentConfiguration<TextFieldProperties> configuration = ComponentConfiguration
+                .of(annotation("textFieldDefaults", TextFieldProperties.class));
+        assertTextFieldDefaults(configuration.applyTo(changedTextField()));
+    }
+
+    @Test
+    public void createWithSupplierSetsTheDefaultsWithTheGeneratedApplier()
+            throws Exception {
+        final ComponentConfiguration<TextFieldProperties> configuration = ComponentConfiguration
+                .of(annotation("textFieldDefaults", TextFieldProperties.class));
+        final TextField changed = changedTextField();
+        assertTextFieldDefaults(configuration.create(() -> changed));
+    }
+
+    @Test
+    public void applyToSetsTheDefaultsWithAPlan() throws Exception {
+        final ComponentConfiguration<FieldProperties> configuration = ComponentConfiguration
+                .of(annotation("fieldDefaults", FieldProperties.class));
+        final TextField field = configuration.applyTo(changedTextField());
+        assertTrue(field.isEnabled());
+        assertEquals(ValueChangeMode.LAZY, field.getValueChangeMode());
+    }
+
+    @Test
+    public void createSkipsTheDefaults() throws Exception {
+        assertTextFieldDefaults(ComponentConfiguration.of(
+                annotation("textFieldDefaults", TextFieldProperties.class))
+                .<TextField> create());
+        final TextField field = ComponentConfiguration.of(
+                annotation("fieldDefaults", FieldProperties.class))
+                .create(TextField::new);
+        assertTrue(field.isEnabled());
+        assertEquals(ValueChangeMode.LAZY, field.getValueChangeMode());
+    }
+
+    private static TextField changedTextField() {
+        final TextField field = new TextField();
+        field.setDescription("Changed");
+        field.setValue("Typed");
+        field.setPrimaryStyleName("changed");
+        field.setValueChangeMode(ValueChangeMode.EAGER);
+        field.setEnabled(false);
+        return field;
+    }
+
+    private static void assertTextFieldDefaults(TextField field) {
+        assertEquals("", field.getDescription());
+        assertEquals("", field.getValue());
+        assertEquals("v-textfield", field.getPrimaryStyleName());
+        assertEquals(ValueChangeMode.LAZY, field.getValueChangeMode());
+    }
+
+    private static <A extends Annotation> A annotation(String field,
+            Class<A> annotationType) throws NoSuchFieldException {
+        return ComponentConfigurationTest.class.getDeclaredField(field)
+                .getAnnotation(annotationType);
+    }
+}
@@ -0,0 +1,61 @@
+package org.vaadin.addon.cdiproperties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.vaadin.addon.cdiproperties.annotation.TextFieldProperties;
+
+import com.vaadin.ui.TextField;
+
+public class ComponentConfiguratorTest {
+
+    @TextFieldProperties(caption = "Name")
+    private static TextField field;
+
+    private TestContainer container;
+    private ComponentConfigurator configurator;
+
+    @Before
+    public void setUp() {
+        container = TestContainer.start();
+        configurator = container.get(ComponentConfigurator.class);
+    }
+
+    @After
+    public void tearDown() {
+        container.shutdown();
+    }
+
+    @Test
+    public void getComponentsCreatesTheGivenNumber() throws Exception {
+        final List<TextField> fields = configurator.getComponents(
+                annotation(), 3);
+        assertEquals(3, fields.size());
+        for (TextField textField : fields) {
+            assertEquals("Name", textField.getCaption());
+        }
+        assertTrue(configurator.getComponents(annotation(), 0).isEmpty());
+    }
+
+    @Test
+    public void getComponentsRejectsANegativeCount() throws Exception {
+        try {
+            configurator.getComponents(annotation(), -1);
+            fail("a negative count was accepted");
+        } catch (IllegalArgumentException e) {
+            assertEquals("count must not be negative: -1", e.getMessage());
+        }
+    }
+
+    private static TextFieldProperties annotation()
+            throws NoSuchFieldException {
+        return ComponentConfiguratorTest.class.getDeclaredField("field")
+                .getAnnotation(TextFieldProperties.class);
+    }
+}
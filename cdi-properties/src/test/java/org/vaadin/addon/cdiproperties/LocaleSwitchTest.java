@@ -0,0 +1,91 @@
+package org.vaadin.addon.cdiproperties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Locale;
+
+import javax.enterprise.context.RequestScoped;
+
+import org.jboss.weld.context.RequestContext;
+import org.jboss.weld.context.unbound.UnboundLiteral;
+import org.junit.After;
+import org.junit.Test;
+
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.ui.UI;
+
+/**
+ * Asynchronous locale switches, run with the system property
+ * {@value Localizer#ASYNC_PROPERTY} set to true.
+ */
+public class LocaleSwitchTest {
+
+    private TestContainer container;
+
+    @After
+    public void tearDown() {
+        UI.setCurrent(null);
+        container.shutdown();
+    }
+
+    @Test
+    public void applicationScopedBundleIsLookedUpOutsideOfRequests() {
+        container = TestContainer.start();
+        assertTrue(container.get(TextBundleLookup.class)
+                .isThreadIndependent());
+    }
+
+    @Test
+    public void requestScopedBundleIsLookedUpInTheRequest() {
+        container = TestContainer.startWithBundle(RequestTextBundle.class,
+                LocalizerTest.View.class);
+        final RequestContext request = container.get(RequestContext.class,
+                UnboundLiteral.INSTANCE);
+        request.activate();
+        try {
+            assertFalse(container.get(TextBundleLookup.class)
+                    .isThreadIndependent());
+            assertTrue(Localizer.ASYNC_PROPERTY + " is not set",
+                    LocaleSwitch.ASYNC);
+
+            final UI ui = new TestUI();
+            ui.setSession(new VaadinSession(null));
+            UI.setCurrent(ui);
+            final LocalizerTest.View view = container
+                    .create(LocalizerTest.View.class);
+            ui.setContent(view);
+
+            RequestTextBundle.locale = Locale.GERMAN;
+            container.fireLocaleSwitch(Locale.GERMAN);
+            assertEquals("de:name", view.name.getCaption());
+            assertEquals("de:greeting", view.greeting.getValue());
+        } finally {
+            RequestTextBundle.locale = Locale.ENGLISH;
+            request.deactivate();
+        }
+    }
+
+    /**
+     * Text bundle that is only available in a request, like one reading the
+     * locale of the HTTP request.
+     */
+    @RequestScoped
+    public static class RequestTextBundle implements TextBundle {
+        static volatile Locale locale = Locale.ENGLISH;
+
+        @Override
+        public String getText(String key, Object... params) {
+            return locale.getLanguage() + ":" + key;
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static final class TestUI extends UI {
+        @Override
+        protected void init(VaadinRequest request) {
+        }
+    }
+}
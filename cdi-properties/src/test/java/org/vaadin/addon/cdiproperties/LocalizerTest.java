@@ -0,0 +1,184 @@
+package org.vaadin.addon.cdiproperties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.vaadin.addon.cdiproperties.annotation.LabelProperties;
+import org.vaadin.addon.cdiproperties.annotation.TextFieldProperties;
+
+import com.vaadin.server.ClientConnector.AttachEvent;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.ui.AbstractComponent;
+import com.vaadin.ui.CssLayout;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.TextField;
+import com.vaadin.ui.UI;
+
+public class LocalizerTest {
+
+    private static final Locale[] LOCALES = { Locale.ENGLISH, Locale.GERMAN,
+            new Locale("fi") };
+    private static final int NAVIGATIONS = 100;
+
+    private TestContainer container;
+    private Localizer localizer;
+    private UI ui;
+
+    @Before
+    public void setUp() {
+        container = TestContainer.start(View.class);
+        localizer = container.get(Localizer.class);
+        ui = new TestUI();
+        ui.setSession(new VaadinSession(null));
+    }
+
+    @After
+    public void tearDown() {
+        container.shutdown();
+    }
+
+    /**
+     * Navigates between views that are created for each navigation and
+     * dropped when navigating away, switching the locale on each view. The
+     * Localizer must not keep the dropped views nor grow with the
+     * navigations.
+     */
+    @Test
+    public void navigationKeepsTheRegistrationsFlat() throws Exception {
+        final List<WeakReference<View>> dropped = new ArrayList<WeakReference<View>>();
+        for (int i = 0; i < NAVIGATIONS - 1; i++) {
+            dropped.add(new WeakReference<View>(navigate(i)));
+        }
+        final View current = navigate(NAVIGATIONS - 1);
+
+        collect(dropped);
+        for (WeakReference<View> view : dropped) {
+            assertNull("a dropped view is still referenced", view.get());
+        }
+        assertEquals("registered texts of the current view", 3,
+                localizer.getRegistrationCount());
+        assertEquals("stale components", 0, localizer.getStaleCount());
+        assertEquals(LOCALES[(NAVIGATIONS - 1) % LOCALES.length]
+                .getLanguage() + ":greeting", current.greeting.getValue());
+    }
+
+    @Test
+    public void detachedViewIsUpdatedOnAttach() {
+        final View view = navigate(0);
+        navigate(1);
+        assertEquals(2, localizer.getStaleCount());
+
+        ui.setContent(view);
+        final String language = LOCALES[1].getLanguage();
+        assertEquals(language + ":name", view.name.getCaption());
+        assertEquals(language + ":nameHelp", view.name.getDescription());
+        assertEquals(language + ":greeting", view.greeting.getValue());
+        assertEquals(0, localizer.getStaleCount());
+    }
+
+    @Test
+    public void refreshListenerStaysSingleAcrossSerialization()
+            throws Exception {
+        final View view = navigate(0);
+        navigate(1);
+        final Object listener = getOnlyAttachListener(view.greeting);
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(view.greeting);
+        }
+        final Label copy;
+        try (ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (Label) in.readObject();
+        }
+        assertSame(listener, getOnlyAttachListener(copy));
+    }
+
+    private static Object getOnlyAttachListener(AbstractComponent component) {
+        final Collection<?> listeners = component
+                .getListeners(AttachEvent.class);
+        assertEquals(1, listeners.size());
+        return listeners.iterator().next();
+    }
+
+    /**
+     * Shows a new view and switches to the next locale, as a view that
+     * changes the language on entering would.
+     */
+    private View navigate(int navigation) {
+        final View view = container.create(View.class);
+        ui.setContent(view);
+        final Locale locale = LOCALES[navigation % LOCALES.length];
+        container.switchLocale(locale);
+        assertEquals(locale.getLanguage() + ":name", view.name.getCaption());
+        endRequest();
+        return view;
+    }
+
+    /**
+     * Releases the detached connectors, as writing the response would.
+     */
+    private void endRequest() {
+        ui.getConnectorTracker().cleanConnectorMap();
+        ui.getConnectorTracker().markAllConnectorsClean();
+    }
+
+    private static void collect(List<? extends WeakReference<?>> references)
+            throws InterruptedException {
+        for (int i = 0; i < 50 && !isCleared(references); i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+    }
+
+    private static boolean isCleared(
+            List<? extends WeakReference<?>> references) {
+        for (WeakReference<?> reference : references) {
+            if (reference.get() != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @SuppressWarnings("serial")
+    public static class View extends CssLayout {
+        @Inject
+        @TextFieldProperties(captionKey = "name", descriptionKey = "nameHelp")
+        TextField name;
+        @Inject
+        @LabelProperties(valueKey = "greeting")
+        Label greeting;
+
+        @PostConstruct
+        void init() {
+            addComponents(name, greeting);
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static final class TestUI extends UI {
+        @Override
+        protected void init(VaadinRequest request) {
+        }
+    }
+}
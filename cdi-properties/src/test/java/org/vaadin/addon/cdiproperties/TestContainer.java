@@ -0,0 +1,119 @@
+package org.vaadin.addon.cdiproperties;
+
+import java.lang.annotation.Annotation;
+import java.util.Locale;
+
+import javax.enterprise.inject.spi.BeanManager;
+import javax.enterprise.inject.spi.Unmanaged;
+import javax.enterprise.util.AnnotationLiteral;
+
+import org.jboss.weld.environment.se.Weld;
+import org.jboss.weld.environment.se.WeldContainer;
+import org.vaadin.addon.cdiproperties.Localizer.TextBundleUpdated;
+import org.vaadin.addon.cdiproperties.producer.ComponentProducers;
+
+/**
+ * Weld SE container with the add-on beans, a {@link TestTextBundle} or
+ * another bundle, and the given bean classes. There is no servlet container nor a VaadinSession, so
+ * UI scoped beans are kept in a {@link TestUIContext} that is always active.
+ */
+final class TestContainer {
+
+    private final TestUIContext uiContext = new TestUIContext();
+    private final WeldContainer container;
+
+    private TestContainer(Class<? extends TextBundle> bundleClass,
+            boolean caching, Class<?>... beanClasses) {
+        final Weld weld = new Weld().disableDiscovery()
+                .addPackage(false, ComponentConfigurator.class)
+                .addPackage(false, ComponentProducers.class)
+                .addBeanClass(bundleClass)
+                .addExtension(uiContext.getExtension());
+        if (caching) {
+            weld.enableDecorators(CachingTextBundle.class);
+        }
+        for (Class<?> beanClass : beanClasses) {
+            weld.addBeanClass(beanClass);
+        }
+        container = weld.initialize();
+    }
+
+    static TestContainer start(Class<?>... beanClasses) {
+        return new TestContainer(TestTextBundle.class, false, beanClasses);
+    }
+
+    static TestContainer startWithBundle(
+            Class<? extends TextBundle> bundleClass, Class<?>... beanClasses) {
+        return new TestContainer(bundleClass, false, beanClasses);
+    }
+
+    /**
+     * Starts a container with the {@link CachingTextBundle} decorating the
+     * bundle.
+     */
+    static TestContainer startCaching(
+            Class<? extends TextBundle> bundleClass, Class<?>... beanClasses) {
+        return new TestContainer(bundleClass, true, beanClasses);
+    }
+
+    <T> T get(Class<T> type, Annotation... qualifiers) {
+        return container.instance().select(type, qualifiers).get();
+    }
+
+    BeanManager getBeanManager() {
+        return container.getBeanManager();
+    }
+
+    /**
+     * Creates an instance of the given class with its fields injected, that
+     * is not referenced by the container. Dropping it drops its dependent
+     * beans, such as the injected components.
+     */
+    <T> T create(Class<T> type) {
+        return new Unmanaged<T>(container.getBeanManager(), type)
+                .newInstance().produce().inject().postConstruct().get();
+    }
+
+    /**
+     * Switches the locale of the {@link TestTextBundle} and fires the
+     * {@link TextBundleUpdated} event of the switch.
+     */
+    void switchLocale(Locale locale) {
+        get(TestTextBundle.class).setLocale(locale);
+        fireLocaleSwitch(locale);
+    }
+
+    /**
+     * Fires the {@link TextBundleUpdated} event of a switch to the locale,
+     * leaving the bundle as it is.
+     */
+    void fireLocaleSwitch(Locale locale) {
+        container.getBeanManager().fireEvent(locale,
+                new TextBundleUpdatedLiteral());
+    }
+
+    /**
+     * Fires the {@link TextBundleUpdated} event of reloaded texts.
+     */
+    void reloadTexts() {
+        container.getBeanManager().fireEvent(new Object(),
+                new TextBundleUpdatedLiteral());
+    }
+
+    /**
+     * Destroys the UI scoped beans, as closing the UI would.
+     */
+    void closeUI() {
+        uiContext.destroy();
+    }
+
+    void shutdown() {
+        closeUI();
+        container.shutdown();
+    }
+
+    @SuppressWarnings("all")
+    private static final class TextBundleUpdatedLiteral extends
+            AnnotationLiteral<TextBundleUpdated> implements TextBundleUpdated {
+    }
+}
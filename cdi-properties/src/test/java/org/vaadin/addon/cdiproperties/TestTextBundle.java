@@ -0,0 +1,28 @@
+package org.vaadin.addon.cdiproperties;
+
+import java.util.Locale;
+
+import javax.enterprise.context.ApplicationScoped;
+
+/**
+ * Text bundle that derives the texts from the key and its locale.
+ */
+@ApplicationScoped
+public class TestTextBundle implements TextBundle {
+
+    private volatile Locale locale = Locale.ENGLISH;
+
+    @Override
+    public String getText(String key, Object... params) {
+        return locale.getLanguage() + ":" + key;
+    }
+
+    @Override
+    public Locale getLocale() {
+        return locale;
+    }
+
+    public void setLocale(Locale locale) {
+        this.locale = locale;
+    }
+}
@@ -0,0 +1,93 @@
+package org.vaadin.addon.cdiproperties;
+
+import java.lang.annotation.Annotation;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.enterprise.context.spi.Context;
+import javax.enterprise.context.spi.Contextual;
+import javax.enterprise.context.spi.CreationalContext;
+import javax.enterprise.event.Observes;
+import javax.enterprise.inject.spi.AfterBeanDiscovery;
+import javax.enterprise.inject.spi.Extension;
+
+import com.vaadin.cdi.UIScoped;
+
+/**
+ * Always active context for {@link UIScoped} beans. The context of
+ * vaadin-cdi is only active while a VaadinSession is bound to the thread,
+ * which never happens in the tests. All test threads share the same "UI".
+ */
+final class TestUIContext implements Context {
+
+    private final Map<Contextual<?>, ContextualInstance<?>> instances = new HashMap<Contextual<?>, ContextualInstance<?>>();
+
+    @Override
+    public Class<? extends Annotation> getScope() {
+        return UIScoped.class;
+    }
+
+    @Override
+    public synchronized <T> T get(Contextual<T> contextual,
+            CreationalContext<T> creationalContext) {
+        T instance = get(contextual);
+        if (instance == null && creationalContext != null) {
+            instance = contextual.create(creationalContext);
+            instances.put(contextual, new ContextualInstance<T>(contextual,
+                    creationalContext, instance));
+        }
+        return instance;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized <T> T get(Contextual<T> contextual) {
+        final ContextualInstance<?> instance = instances.get(contextual);
+        return instance == null ? null : (T) instance.instance;
+    }
+
+    @Override
+    public boolean isActive() {
+        return true;
+    }
+
+    synchronized void destroy() {
+        for (ContextualInstance<?> instance : instances.values()) {
+            instance.destroy();
+        }
+        instances.clear();
+    }
+
+    Extension getExtension() {
+        return new UIContextExtension(this);
+    }
+
+    private static final class ContextualInstance<T> {
+        private final Contextual<T> contextual;
+        private final CreationalContext<T> creationalContext;
+        private final T instance;
+
+        ContextualInstance(Contextual<T> contextual,
+                CreationalContext<T> creationalContext, T instance) {
+            this.contextual = contextual;
+            this.creationalContext = creationalContext;
+            this.instance = instance;
+        }
+
+        void destroy() {
+            contextual.destroy(instance, creationalContext);
+        }
+    }
+
+    public static class UIContextExtension implements Extension {
+        private final TestUIContext context;
+
+        UIContextExtension(TestUIContext context) {
+            this.context = context;
+        }
+
+        void addContext(@Observes AfterBeanDiscovery afterBeanDiscovery) {
+            afterBeanDiscovery.addContext(context);
+        }
+    }
+}